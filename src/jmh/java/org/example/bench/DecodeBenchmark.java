@@ -0,0 +1,100 @@
+package org.example.bench;
+
+import org.example.core.DecodeTable;
+import org.example.core.Instructions;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+@OperationsPerInvocation(DecodeBenchmark.OPCODES)
+public class DecodeBenchmark {
+
+    static final int OPCODES = 1 << 16;
+
+    private short[] opcodes;
+
+    @Setup
+    public void setup() {
+        opcodes = randomProgram(OPCODES, new Random(42));
+    }
+
+    @Benchmark
+    public long instructionsDecode() {
+        return switchDecode(opcodes);
+    }
+
+    @Benchmark
+    public long decodeTable() {
+        return tableDecode(opcodes);
+    }
+
+    // Mirrors the old fetch path: decode by nested switch, then switch on the
+    // enum and extract operands from the raw opcode
+    private static long switchDecode(short[] opcodes) {
+        long sum = 0;
+        for(var opcode : opcodes) {
+            var instruction = Instructions.decode(opcode);
+            switch (instruction) {
+                case SET:
+                case ADD:
+                case SE:
+                case SNE:
+                    sum += ((opcode >> 8) & 0x0F) + (opcode & 0x00FF);
+                    break;
+                case JMP:
+                case CALL:
+                case LDA:
+                    sum += opcode & 0x0FFF;
+                    break;
+                case DRAW:
+                    sum += ((opcode >> 8) & 0x0F) + ((opcode >> 4) & 0x0F) + (opcode & 0x0F);
+                    break;
+                default:
+                    sum += instruction.ordinal();
+            }
+        }
+        return sum;
+    }
+
+    private static long tableDecode(short[] opcodes) {
+        long sum = 0;
+        for(var opcode : opcodes) {
+            var op = DecodeTable.decode(opcode);
+            switch (op.getInstruction()) {
+                case SET:
+                case ADD:
+                case SE:
+                case SNE:
+                    sum += op.getX() + op.getNN();
+                    break;
+                case JMP:
+                case CALL:
+                case LDA:
+                    sum += op.getNNN();
+                    break;
+                case DRAW:
+                    sum += op.getX() + op.getY() + op.getN();
+                    break;
+                default:
+                    sum += op.getInstruction().ordinal();
+            }
+        }
+        return sum;
+    }
+
+    static short[] randomProgram(int size, Random random) {
+        var program = new short[size];
+        for(int i=0; i<size; i++) {
+            program[i] = (short) random.nextInt(0x10000);
+        }
+        return program;
+    }
+}
@@ -0,0 +1,34 @@
+package org.example.bench;
+
+import org.example.core.decompiler.CPUDecompiler;
+import org.example.core.decompiler.Decompiler;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DecompilerBenchmark {
+
+    // A full 3.5 KB program area
+    private static final int OPCODES = (4096 - 0x200) / 2;
+
+    private final Decompiler decompiler = CPUDecompiler.getDefault();
+    private short[] program;
+
+    @Setup
+    public void setup() {
+        program = DecodeBenchmark.randomProgram(OPCODES, new Random(42));
+    }
+
+    @Benchmark
+    public List<String> run() {
+        return decompiler.run(program);
+    }
+}
@@ -0,0 +1,78 @@
+package org.example.bench;
+
+import org.example.core.Display;
+import org.example.core.FrameBuffer;
+import org.example.gui.components.FrameImage;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DisplayBenchmark {
+
+    private static final byte[] SPRITE = {(byte) 0xF0, (byte) 0x90, (byte) 0x90, (byte) 0x90, (byte) 0xF0};
+
+    private final FrameBuffer frameBuffer = new FrameBuffer();
+    private final PixelDisplay pixelDisplay = new PixelDisplay();
+    private final FrameImage image = new FrameImage();
+    private int frame = 0;
+
+    @Benchmark
+    public FrameBuffer frameBufferClear() {
+        frameBuffer.clear();
+        return frameBuffer;
+    }
+
+    // Display's default per-pixel clear
+    @Benchmark
+    public PixelDisplay pixelDisplayClear() {
+        pixelDisplay.clear();
+        return pixelDisplay;
+    }
+
+    @Benchmark
+    public boolean frameBufferDrawSprite() {
+        frame++;
+        return frameBuffer.drawSprite(frame & 0x3F, frame & 0x1F, SPRITE, SPRITE.length);
+    }
+
+    @Benchmark
+    public boolean pixelDisplayDrawSprite() {
+        frame++;
+        return pixelDisplay.drawSprite(frame & 0x3F, frame & 0x1F, SPRITE, SPRITE.length);
+    }
+
+    // The part of SwingDisplay's refresh that copies the framebuffer into its image
+    @Benchmark
+    public int swingDisplayDrawFull() {
+        return image.draw(frameBuffer, true);
+    }
+
+    @Benchmark
+    public int swingDisplayDrawOneSprite() {
+        frame++;
+        frameBuffer.drawSprite(frame & 0x3F, frame & 0x1F, SPRITE, SPRITE.length);
+        return image.draw(frameBuffer, false);
+    }
+
+    // The original int-per-pixel layout, relying on Display's default methods
+    public static class PixelDisplay implements Display {
+
+        private final int[] pixels = new int[WIDTH * HEIGHT];
+
+        @Override
+        public int getPixel(int x, int y) {
+            return pixels[y * WIDTH + x];
+        }
+
+        @Override
+        public void setPixel(int x, int y, int p) {
+            pixels[y * WIDTH + x] = p;
+        }
+    }
+}
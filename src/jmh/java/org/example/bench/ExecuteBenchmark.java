@@ -0,0 +1,99 @@
+package org.example.bench;
+
+import org.example.core.*;
+import org.example.core.headless.HeadlessControls;
+import org.example.core.headless.HeadlessDisplay;
+import org.example.utils.Utils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+@OperationsPerInvocation(ExecuteBenchmark.CYCLES)
+public class ExecuteBenchmark {
+
+    static final int CYCLES = 10_000;
+
+    public enum Mix {
+        ALU(new short[] {
+                0x6005,         // 200: V0 = 05
+                0x6113,         // 202: V1 = 13
+                0x7007,         // 204: V0 += 07
+                (short) 0x8014, // 206: V0 += V1
+                (short) 0x8105, // 208: V1 -= V0
+                (short) 0x8012, // 20A: V0 &= V1
+                (short) 0x8103, // 20C: V1 ^= V0
+                (short) 0x8016, // 20E: V0 >>= 1
+                (short) 0x811E, // 210: V1 <<= 1
+                (short) 0x8201, // 212: V2 |= V0
+                (short) 0x8217, // 214: V2 = V1 - V2
+                0x1204,         // 216: goto 204
+        }),
+        BRANCH(new short[] {
+                0x6000,         // 200: V0 = 0
+                0x6100,         // 202: V1 = 0
+                0x7001,         // 204: V0 += 1
+                0x3080,         // 206: skip if V0 == 80
+                0x120C,         // 208: goto 20C
+                0x6000,         // 20A: V0 = 0
+                0x4003,         // 20C: skip if V0 != 3
+                0x221A,         // 20E: call 21A
+                0x5010,         // 210: skip if V0 == V1
+                0x7101,         // 212: V1 += 1
+                (short) 0x9010, // 214: skip if V0 != V1
+                0x6100,         // 216: V1 = 0
+                0x1204,         // 218: goto 204
+                0x7102,         // 21A: V1 += 2
+                0x00EE,         // 21C: return
+        }),
+        DRAW(new short[] {
+                0x6000,         // 200: V0 = 0
+                0x6100,         // 202: V1 = 0
+                (short) 0xA00A, // 204: I = font sprite 2
+                (short) 0xD015, // 206: draw 8x5 at V0, V1
+                0x7009,         // 208: V0 += 9
+                0x7103,         // 20A: V1 += 3
+                (short) 0xD015, // 20C: draw again
+                0x3160,         // 20E: skip if V1 == 60
+                0x1204,         // 210: goto 204
+                0x00E0,         // 212: clear
+                0x1202,         // 214: goto 202
+        });
+
+        private final short[] program;
+
+        Mix(short[] program) {
+            this.program = program;
+        }
+    }
+
+    @Param
+    public Mix mix;
+
+    @Param({"INTERPRETER", "BLOCK_CACHE", "JIT"})
+    public ExecutionEngine engine;
+
+    private CPUv2 cpu;
+    private HeadlessRunner runner;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        cpu = CPUBuilder.build(Utils.shortArrToBytes(mix.program), new HeadlessDisplay(), new HeadlessControls());
+        cpu.setEngine(engine);
+        runner = new HeadlessRunner(cpu);
+    }
+
+    @Benchmark
+    public long execute() {
+        var executed = runner.runCycles(CYCLES);
+        if(cpu.isHalted()) {
+            throw new IllegalStateException(mix + " halted");
+        }
+        return executed;
+    }
+}
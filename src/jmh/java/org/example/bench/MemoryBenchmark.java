@@ -0,0 +1,44 @@
+package org.example.bench;
+
+import org.example.core.Memory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MemoryBenchmark {
+
+    private final Memory memory = new Memory();
+    private final byte[] copy = new byte[Memory.CAPACITY];
+    private final byte[] pages = new byte[Memory.CAPACITY];
+    private int counter = 0;
+
+    @Benchmark
+    public byte[] snapshot() {
+        return memory.snapshot();
+    }
+
+    @Benchmark
+    public byte[] copyTo() {
+        memory.copyTo(copy);
+        return copy;
+    }
+
+    @Benchmark
+    public byte viewRead() {
+        return memory.view().get(counter++ & 0xFFF);
+    }
+
+    // One store per frame, then the delta a save-state or rewind writer would take
+    @Benchmark
+    public int changedPagesDelta() {
+        var epoch = memory.nextEpoch();
+        memory.write((counter += 67) & 0xFFF, (byte) counter);
+        return memory.copyPages(memory.changedSince(epoch), pages, 0);
+    }
+}
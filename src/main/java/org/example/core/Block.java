@@ -0,0 +1,29 @@
+package org.example.core;
+
+final class Block {
+
+    final int start;
+    final int end;
+    final DecodedOp[] ops;
+    final boolean compilable;
+
+    int executions = 0;
+    CompiledBlock compiled = null;
+
+    Block(int start, DecodedOp[] ops) {
+        this.start = start;
+        this.end = start + ops.length * 2;
+        this.ops = ops;
+        this.compilable = isCompilable(ops);
+    }
+
+    // FX0A rewinds the PC until a key arrives, so it always stays interpreted
+    private static boolean isCompilable(DecodedOp[] ops) {
+        for(var op : ops) {
+            if(op.instruction == Instructions.LDKP) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
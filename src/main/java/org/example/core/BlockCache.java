@@ -0,0 +1,112 @@
+package org.example.core;
+
+import java.util.Arrays;
+
+final class BlockCache {
+
+    static final int MAX_BLOCK_OPS = 32;
+    private static final int MAX_BLOCK_BYTES = MAX_BLOCK_OPS * 2;
+
+    private final Memory memory;
+    private final Block[] blocks = new Block[Memory.CAPACITY];
+    // Number of cached blocks whose bytes include each address
+    private final int[] coverage = new int[Memory.CAPACITY];
+    private final DecodedOp[] buffer = new DecodedOp[MAX_BLOCK_OPS];
+    private int cached = 0;
+
+    BlockCache(Memory memory) {
+        this.memory = memory;
+        memory.setWriteListener(this::invalidate);
+    }
+
+    Block get(int pc) {
+        if(pc < 0 || pc + 1 >= Memory.CAPACITY) {
+            return null;
+        }
+        var block = blocks[pc];
+        if(block == null) {
+            block = build(pc);
+            blocks[pc] = block;
+            for(int i=block.start; i<block.end; i++) {
+                coverage[i]++;
+            }
+            cached++;
+        }
+        return block;
+    }
+
+    void invalidate(int index, int length) {
+        if(cached == 0) {
+            return;
+        }
+        int end = Math.min(index + length, Memory.CAPACITY);
+        for(int address=index; address<end; address++) {
+            if(coverage[address] != 0) {
+                invalidateAt(address);
+            }
+        }
+    }
+
+    void clear() {
+        Arrays.fill(blocks, null);
+        Arrays.fill(coverage, 0);
+        cached = 0;
+    }
+
+    private void invalidateAt(int address) {
+        for(int start=Math.max(0, address - MAX_BLOCK_BYTES + 1); start<=address; start++) {
+            var block = blocks[start];
+            if(block != null && block.end > address) {
+                remove(block);
+            }
+        }
+    }
+
+    private void remove(Block block) {
+        blocks[block.start] = null;
+        for(int i=block.start; i<block.end; i++) {
+            coverage[i]--;
+        }
+        cached--;
+    }
+
+    private Block build(int pc) {
+        int count = 0;
+        int address = pc;
+        while (count < MAX_BLOCK_OPS && address + 1 < Memory.CAPACITY) {
+            var opcode = (short) ((Byte.toUnsignedInt(memory.read(address)) << 8)
+                    + Byte.toUnsignedInt(memory.read(address + 1)));
+            var op = DecodeTable.decode(opcode);
+            buffer[count++] = op;
+            address += 2;
+            if(endsBlock(op.instruction)) {
+                break;
+            }
+        }
+        return new Block(pc, Arrays.copyOf(buffer, count));
+    }
+
+    // Control flow, key waits and memory writes end a block, so a block never
+    // runs past an instruction that may change the PC or the code it was built from
+    static boolean endsBlock(Instructions instruction) {
+        switch (instruction) {
+            case JMP:
+            case JMPO:
+            case CALL:
+            case RET:
+            case SE:
+            case SNE:
+            case SER:
+            case SNER:
+            case SKP:
+            case SKNP:
+            case LDKP:
+            case STRD:
+            case STDR:
+            case USI:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package org.example.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Translates a Block into a hidden class implementing CompiledBlock.
+// Register arithmetic is emitted inline against the V array, everything else
+// calls back into CPUv2.execute. Before every call-back the PC and cycle
+// counter are brought up to date, so the machine state observed by an
+// instruction, or left behind by an exception, matches the interpreter.
+// Generated code never branches, so no stack map frames are needed.
+final class BlockCompiler {
+
+    static final int HOT_THRESHOLD = 16;
+
+    private static final int CLASS_VERSION = 52;
+    private static final String PACKAGE = "org/example/core/";
+    private static final String CPU = PACKAGE + "CPUv2";
+    private static final String OP = PACKAGE + "DecodedOp";
+    private static final String RUN_DESCRIPTOR = "(L" + CPU + ";[B[L" + OP + ";)V";
+
+    // Local variable slots of the generated run method
+    private static final int CPU_SLOT = 1;
+    private static final int V_SLOT = 2;
+    private static final int OPS_SLOT = 3;
+    private static final int TMP_SLOT = 4;
+
+    private static final AtomicInteger counter = new AtomicInteger();
+
+    private final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+    CompiledBlock compile(Block block) {
+        var name = PACKAGE + "CompiledBlock$" + String.format("%03X", block.start)
+                + "$" + counter.incrementAndGet();
+        try {
+            var bytes = generate(name, block);
+            var hidden = lookup.defineHiddenClass(bytes, true);
+            var constructor = hidden.findConstructor(hidden.lookupClass(), MethodType.methodType(void.class));
+            return (CompiledBlock) constructor.invoke();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Failed to compile block at "
+                    + String.format("0x%03X", block.start), e);
+        }
+    }
+
+    private byte[] generate(String name, Block block) throws IOException {
+        var pool = new ConstantPool();
+        int thisClass = pool.classRef(name);
+        int superClass = pool.classRef("java/lang/Object");
+        int iface = pool.classRef(PACKAGE + "CompiledBlock");
+        int code = pool.utf8("Code");
+        int initName = pool.utf8("<init>");
+        int initDescriptor = pool.utf8("()V");
+        int runName = pool.utf8("run");
+        int runDescriptor = pool.utf8(RUN_DESCRIPTOR);
+
+        var constructor = new Code();
+        constructor.op(0x2A); // aload_0
+        constructor.op(0xB7).u2(pool.methodRef("java/lang/Object", "<init>", "()V")); // invokespecial
+        constructor.op(0xB1); // return
+
+        var run = emitRun(pool, block);
+
+        var bytes = new ByteArrayOutputStream();
+        var out = new DataOutputStream(bytes);
+        out.writeInt(0xCAFEBABE);
+        out.writeShort(0);
+        out.writeShort(CLASS_VERSION);
+        pool.writeTo(out);
+        out.writeShort(0x0030); // ACC_FINAL | ACC_SUPER
+        out.writeShort(thisClass);
+        out.writeShort(superClass);
+        out.writeShort(1);
+        out.writeShort(iface);
+        out.writeShort(0); // fields
+        out.writeShort(2); // methods
+        writeMethod(out, initName, initDescriptor, code, constructor, 1, 1);
+        writeMethod(out, runName, runDescriptor, code, run, 6, 5);
+        out.writeShort(0); // attributes
+        return bytes.toByteArray();
+    }
+
+    private Code emitRun(ConstantPool pool, Block block) {
+        int execute = pool.methodRef(CPU, "execute", "(L" + OP + ";)V");
+        int advance = pool.methodRef(CPU, "advance", "(II)V");
+        int retire = pool.methodRef(CPU, "retire", "(I)V");
+
+        var code = new Code();
+        var ops = block.ops;
+        int synced = 0;
+        boolean lastInline = false;
+        for(int i=0; i<ops.length; i++) {
+            var op = ops[i];
+            lastInline = emitInline(code, op);
+            if(!lastInline) {
+                // cpu.advance(pcAfterFetch, cyclesSinceLastSync); cpu.execute(ops[i])
+                code.load(CPU_SLOT).op(0x11).u2(block.start + (i + 1) * 2).pushInt(i - synced)
+                        .op(0xB6).u2(advance);
+                code.load(CPU_SLOT).load(OPS_SLOT).pushInt(i).op(0x32) // aaload
+                        .op(0xB6).u2(execute);
+                synced = i;
+            }
+        }
+        if(lastInline) {
+            code.load(CPU_SLOT).op(0x11).u2(block.end).pushInt(ops.length - synced)
+                    .op(0xB6).u2(advance);
+        } else {
+            code.load(CPU_SLOT).pushInt(ops.length - synced).op(0xB6).u2(retire);
+        }
+        code.op(0xB1); // return
+        return code;
+    }
+
+    // Emits the instruction against the V array, or returns false when it
+    // must go through CPUv2.execute. Semantics mirror the CPUv2 implementations.
+    private boolean emitInline(Code code, DecodedOp op) {
+        int x = op.x;
+        int y = op.y;
+        switch (op.instruction) {
+            case SET:
+                code.load(V_SLOT).pushInt(x).pushInt(op.nn).op(0x54); // bastore
+                return true;
+            case ADD:
+                code.load(V_SLOT).pushInt(x).reg(x).pushInt(op.nn).op(0x60).op(0x54); // iadd
+                return true;
+            case SETR:
+                code.load(V_SLOT).pushInt(x).reg(y).op(0x54);
+                return true;
+            case OR:
+                code.load(V_SLOT).pushInt(x).reg(x).reg(y).op(0x80).op(0x54); // ior
+                return true;
+            case AND:
+                code.load(V_SLOT).pushInt(x).reg(x).reg(y).op(0x7E).op(0x54); // iand
+                return true;
+            case XOR:
+                code.load(V_SLOT).pushInt(x).reg(x).reg(y).op(0x82).op(0x54); // ixor
+                return true;
+            case ADDR:
+                // tmp = (Vx & 0xFF) + (Vy & 0xFF); VF = tmp >>> 8; Vx = tmp
+                code.reg(x).pushInt(0xFF).op(0x7E).reg(y).pushInt(0xFF).op(0x7E).op(0x60).store(TMP_SLOT);
+                code.load(V_SLOT).pushInt(0xF).iload(TMP_SLOT).pushInt(8).op(0x7C).op(0x54); // iushr
+                code.load(V_SLOT).pushInt(x).iload(TMP_SLOT).op(0x54);
+                return true;
+            case SUB:
+                // tmp = (Vx & 0xFF) - (Vy & 0xFF); VF = (tmp >>> 31) ^ 1; Vx = tmp
+                code.reg(x).pushInt(0xFF).op(0x7E).reg(y).pushInt(0xFF).op(0x7E).op(0x64).store(TMP_SLOT); // isub
+                code.load(V_SLOT).pushInt(0xF).iload(TMP_SLOT).pushInt(31).op(0x7C).pushInt(1).op(0x82).op(0x54);
+                code.load(V_SLOT).pushInt(x).iload(TMP_SLOT).op(0x54);
+                return true;
+            case SUBR:
+                // tmp = (Vx & 0xFF) - (Vy & 0xFF); VF = (tmp - 1) >>> 31; Vx = -tmp
+                code.reg(x).pushInt(0xFF).op(0x7E).reg(y).pushInt(0xFF).op(0x7E).op(0x64).store(TMP_SLOT);
+                code.load(V_SLOT).pushInt(0xF).iload(TMP_SLOT).pushInt(1).op(0x64).pushInt(31).op(0x7C).op(0x54);
+                code.load(V_SLOT).pushInt(x).iload(TMP_SLOT).op(0x74).op(0x54); // ineg
+                return true;
+            case SHR:
+                // tmp = Vx; VF = tmp & 1; Vx = (tmp & 0xFF) >>> 1
+                code.reg(x).store(TMP_SLOT);
+                code.load(V_SLOT).pushInt(0xF).iload(TMP_SLOT).pushInt(1).op(0x7E).op(0x54);
+                code.load(V_SLOT).pushInt(x).iload(TMP_SLOT).pushInt(0xFF).op(0x7E).pushInt(1).op(0x7C).op(0x54);
+                return true;
+            case SHL:
+                // tmp = Vx; VF = (tmp >>> 7) & 1; Vx = tmp << 1
+                code.reg(x).store(TMP_SLOT);
+                code.load(V_SLOT).pushInt(0xF).iload(TMP_SLOT).pushInt(7).op(0x7C).pushInt(1).op(0x7E).op(0x54);
+                code.load(V_SLOT).pushInt(x).iload(TMP_SLOT).pushInt(1).op(0x78).op(0x54); // ishl
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static void writeMethod(DataOutputStream out, int name, int descriptor, int codeAttr,
+                                    Code code, int maxStack, int maxLocals) throws IOException {
+        var body = code.toByteArray();
+        out.writeShort(0x0001); // ACC_PUBLIC
+        out.writeShort(name);
+        out.writeShort(descriptor);
+        out.writeShort(1);
+        out.writeShort(codeAttr);
+        out.writeInt(12 + body.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(body.length);
+        out.write(body);
+        out.writeShort(0); // exception table
+        out.writeShort(0); // attributes
+    }
+
+    private static final class Code {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        Code op(int opcode) {
+            bytes.write(opcode);
+            return this;
+        }
+
+        Code u2(int value) {
+            bytes.write(value >> 8);
+            bytes.write(value);
+            return this;
+        }
+
+        Code pushInt(int value) {
+            if(value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                return op(0x10).op(value); // bipush
+            }
+            return op(0x11).u2(value); // sipush
+        }
+
+        Code load(int slot) {
+            return op(0x19).op(slot); // aload
+        }
+
+        Code iload(int slot) {
+            return op(0x15).op(slot);
+        }
+
+        Code store(int slot) {
+            return op(0x36).op(slot); // istore
+        }
+
+        // Pushes V[index], sign extended like a Java byte
+        Code reg(int index) {
+            return load(V_SLOT).pushInt(index).op(0x33); // baload
+        }
+
+        byte[] toByteArray() {
+            return bytes.toByteArray();
+        }
+    }
+
+    private static final class ConstantPool {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final Map<String, Integer> entries = new HashMap<>();
+        private int count = 1;
+
+        int utf8(String value) {
+            return entry("U" + value, () -> {
+                out.writeByte(1);
+                out.writeUTF(value);
+            });
+        }
+
+        int classRef(String name) {
+            int nameIndex = utf8(name);
+            return entry("C" + name, () -> {
+                out.writeByte(7);
+                out.writeShort(nameIndex);
+            });
+        }
+
+        int methodRef(String owner, String name, String descriptor) {
+            int ownerIndex = classRef(owner);
+            int nameIndex = utf8(name);
+            int descriptorIndex = utf8(descriptor);
+            int nameAndType = entry("N" + name + ":" + descriptor, () -> {
+                out.writeByte(12);
+                out.writeShort(nameIndex);
+                out.writeShort(descriptorIndex);
+            });
+            return entry("M" + owner + "." + name + ":" + descriptor, () -> {
+                out.writeByte(10);
+                out.writeShort(ownerIndex);
+                out.writeShort(nameAndType);
+            });
+        }
+
+        void writeTo(DataOutputStream target) throws IOException {
+            target.writeShort(count);
+            target.write(bytes.toByteArray());
+        }
+
+        private int entry(String key, Writer writer) {
+            var index = entries.get(key);
+            if(index != null) {
+                return index;
+            }
+            try {
+                writer.write();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            entries.put(key, count);
+            return count++;
+        }
+
+        @FunctionalInterface
+        private interface Writer {
+            void write() throws IOException;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.example.core;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// One bit per address of the 4 KB address space. The CPU tests the bit for
+// the PC before every fetch; the debugger may toggle bits from any thread.
+public class Breakpoints {
+
+    public interface Listener {
+        // Called on the emulation thread before the instruction at the PC
+        // runs; the CPU stays parked until this returns
+        void onBreakpoint(CPUAgentContext ctx);
+    }
+
+    private final AtomicLongArray bits = new AtomicLongArray(Memory.CAPACITY / 64);
+    private final Listener listener;
+
+    public Breakpoints(Listener listener) {
+        this.listener = listener;
+    }
+
+    public boolean contains(int address) {
+        return (bits.get((address >> 6) & 0x3F) & (1L << address)) != 0;
+    }
+
+    public void set(int address) {
+        check(address);
+        long word;
+        do {
+            word = bits.get(address >> 6);
+        } while (!bits.compareAndSet(address >> 6, word, word | (1L << address)));
+    }
+
+    public void clear(int address) {
+        check(address);
+        long word;
+        do {
+            word = bits.get(address >> 6);
+        } while (!bits.compareAndSet(address >> 6, word, word & ~(1L << address)));
+    }
+
+    // Returns whether the breakpoint is set afterwards
+    public boolean toggle(int address) {
+        check(address);
+        long word;
+        do {
+            word = bits.get(address >> 6);
+        } while (!bits.compareAndSet(address >> 6, word, word ^ (1L << address)));
+        return (word & (1L << address)) == 0;
+    }
+
+    public void clearAll() {
+        for(int i=0; i<bits.length(); i++) {
+            bits.set(i, 0);
+        }
+    }
+
+    public boolean isEmpty() {
+        for(int i=0; i<bits.length(); i++) {
+            if(bits.get(i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void hit(CPUAgentContext ctx) {
+        listener.onBreakpoint(ctx);
+    }
+
+    private static void check(int address) {
+        if(address < 0 || address >= Memory.CAPACITY) {
+            throw new IllegalArgumentException(String.format("Address %X is outside memory", address));
+        }
+    }
+}
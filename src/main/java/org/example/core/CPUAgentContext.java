@@ -1,10 +1,21 @@
 package org.example.core;
 
+import java.nio.ByteBuffer;
+
 public interface CPUAgentContext {
 
+    // Live read-only view, valid for the duration of the callback
+    ByteBuffer getMemory();
+    // Copies, for agents that keep the data past the callback
     byte[] getMemorySnapshot();
+    void copyMemory(byte[] dest);
+    // Packed display row, leftmost pixel in the most significant bit
+    long getDisplayRow(int y);
+    void copyDisplay(long[] dest);
     byte getRegisterValue(int v);
     short getIRegisterValue();
     short getPCRegisterValue();
     short getCurrentOpcode();
+    short getInstructionPC();
+    long getCycle();
 }
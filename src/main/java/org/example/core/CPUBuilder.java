@@ -29,6 +29,9 @@ public class CPUBuilder {
     };
 
     private static final int REFRESH_RATE = 300; //Hz
+    public static final int FRAME_RATE = 60; //Hz
+
+    public static final int CYCLES_PER_FRAME = REFRESH_RATE / FRAME_RATE;
 
     public static CPUv2 build(byte[] rom) {
         var display = new SwingDisplay();
@@ -41,13 +44,10 @@ public class CPUBuilder {
         memory.insertData(0, Utils.shortArrAsByte(FONT));
 
         var registers = new Registers();
-        var mainClock = new Clock(REFRESH_RATE);
-        var delayClock =  new Clock(REFRESH_RATE);
-        var soundClock =  new Clock(REFRESH_RATE);
+        var frameClock = new Clock(FRAME_RATE);
 
         return new CPUv2 (
-                registers, memory,
-                mainClock, delayClock, soundClock,
+                registers, memory, frameClock,
                 display, controls);
     }
 
@@ -55,7 +55,11 @@ public class CPUBuilder {
         return build(loadProgram(program));
     }
 
-    private static byte[] loadProgram(Path path) throws IOException {
+    public static CPUv2 build(Path program, Display display, Controls controls) throws IOException {
+        return build(loadProgram(program), display, controls);
+    }
+
+    static byte[] loadProgram(Path path) throws IOException {
         if(Files.notExists(path)) {
             throw new IllegalArgumentException("Provided path does not exists");
         }
@@ -1,70 +1,409 @@
 package org.example.core;
 
+import org.example.core.jfr.*;
+import org.example.core.metrics.MachineMetrics;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.*;
-import java.util.function.Supplier;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Predicate;
 
 public class CPUv2 {
 
     private final Registers registers;
     private final Memory memory;
+    // Memory itself, or a WatchedMemory while watchpoints are set
+    private MemoryBus bus;
     private final Clock clock;
-    private final Clock soundClock;
-    private final Clock delayClock;
 
     private final Display display;
     private final Controls controls;
-    private Random random = new Random();
-
-    private final ArrayDeque<Short> stack = new ArrayDeque<>();
-    private final List<CPUAgent> agents = new ArrayList<>();
-
-
-    public CPUv2(Registers registers, Memory memory, Clock clock, Clock soundClock, Clock delayClock, Display display, Controls controls) {
+    private Random random = new SeedableRandom();
+
+    private static final int STACK_DEPTH = 16;
+    private final short[] stack = new short[STACK_DEPTH];
+    private int stackPointer = 0;
+    private final byte[] sprite = new byte[0xF];
+    private CPUAgent[] agents = new CPUAgent[0];
+    private final Context context = new Context();
+    private final Queue<Runnable> frameTasks = new ConcurrentLinkedQueue<>();
+    private RewindBuffer rewind = null;
+    private Breakpoints breakpoints = null;
+    private Watchpoints watchpoints = null;
+    private WatchedMemory watched = null;
+    private Profiler profiler = null;
+    private CallProfiler callProfiler = null;
+    private MachineMetrics metrics = null;
+
+    private final BlockCache blockCache;
+    private final BlockCompiler compiler = new BlockCompiler();
+    private ExecutionEngine engine = ExecutionEngine.BLOCK_CACHE;
+
+    private volatile boolean halted = false;
+    private volatile Exception haltCause = null;
+    private boolean logFaults = true;
+    private long cycles = 0;
+    private long frames = 0;
+    // Metrics counters, published once per frame
+    private long draws = 0;
+    private long collisions = 0;
+    private long agentNanos = 0;
+    // Counters at the end of the previous frame, for per-frame JFR events
+    private long frameCycles = 0;
+    private long frameDraws = 0;
+    private long frameCollisions = 0;
+    // Set while a SlowFrame event is being timed; runCycles then times each block or instruction
+    private boolean timeSteps = false;
+    private long slowestNanos = 0;
+    private int slowestPc = 0;
+    private int instructionsPerFrame = CPUBuilder.CYCLES_PER_FRAME;
+
+    public CPUv2(Registers registers, Memory memory, Clock clock, Display display, Controls controls) {
         this.registers = registers;
         this.memory = memory;
+        this.bus = memory;
         this.clock = clock;
-        this.soundClock = soundClock;
-        this.delayClock = delayClock;
         this.display = display;
         this.controls = controls;
+        this.blockCache = new BlockCache(memory);
     }
 
+    // Everything, timers included, runs on the clock's single thread
     public void run() {
-        populateClock(delayClock, registers::getDelayTimer, registers::decDelayTimer).start();
-        populateClock(soundClock, registers::getSoundTimer, registers::decSoundTimer).start();
-        this.clock.setTask(this::runInt);
+        this.clock.setTask(this::runFrame);
         this.clock.start();
     }
 
     public void halt() {
+        var first = !halted;
+        halted = true;
+        if(first) {
+            if(metrics != null) {
+                metrics.halted();
+            }
+            if(FlightRecording.isActive()) {
+                var event = new HaltEvent();
+                if(event.isEnabled()) {
+                    var cause = haltCause;
+                    event.faulted = cause != null;
+                    event.reason = cause != null ? cause.toString() : "Stopped";
+                    event.pc = Short.toUnsignedInt(registers.getPC());
+                    event.instructions = cycles;
+                    event.commit();
+                }
+            }
+        }
         try {
-            this.delayClock.stop();
-            this.soundClock.stop();
             this.clock.stop();
         } catch (InterruptedException e) {
             e.printStackTrace();
         }
     }
 
-    private Clock populateClock(Clock clock, Supplier<Byte> getReg, Runnable decReg) {
-        clock.setTask(()->{
-            if(getReg.get()>0) {
-                decReg.run();
+    // Runs the task on the emulation thread before the next frame starts
+    public void runBetweenFrames(Runnable task) {
+        frameTasks.add(task);
+    }
+
+    // Halts because an instruction failed
+    private void fault(Exception e) {
+        haltCause = e;
+        if(metrics != null) {
+            metrics.faulted(e);
+        }
+        halt();
+        if(logFaults) {
+            e.printStackTrace();
+        }
+    }
+
+    void runFrame() {
+        Runnable task;
+        while ((task = frameTasks.poll()) != null) {
+            task.run();
+        }
+        beginFrame();
+        if(rewind != null && rewind.isRewinding()) {
+            // Replaces the frame with the previous one from the history
+            rewind.stepBack(this);
+            display.frameCompleted();
+            return;
+        }
+        // Only timed while a recording runs; the threshold in its settings decides what is slow
+        var slow = FlightRecording.isActive() ? new SlowFrameEvent() : null;
+        if(slow != null && !slow.isEnabled()) {
+            slow = null;
+        }
+        if(slow != null) {
+            slow.begin();
+            timeSteps = true;
+            slowestNanos = 0;
+            slowestPc = Short.toUnsignedInt(registers.getPC());
+        }
+        var startPc = registers.getPC();
+        var startCycles = cycles;
+        var startDraws = draws;
+
+        runCycles(instructionsPerFrame);
+        if(!halted) {
+            endFrame();
+            if(rewind != null) {
+                rewind.record(this);
             }
-        });
-        return clock;
+        }
+
+        if(slow == null) {
+            return;
+        }
+        timeSteps = false;
+        slow.end();
+        if(slow.shouldCommit()) {
+            slow.frame = frames;
+            slow.slowestPc = slowestPc;
+            slow.slowestDuration = slowestNanos;
+            slow.instructions = cycles - startCycles;
+            slow.startPc = Short.toUnsignedInt(startPc);
+            slow.endPc = Short.toUnsignedInt(registers.getPC());
+            slow.draws = draws - startDraws;
+            slow.commit();
+        }
+    }
+
+    // Lets the controls apply input posted since the last frame
+    void beginFrame() {
+        controls.beginFrame(cycles);
+    }
+
+    void endFrame() {
+        frames++;
+        if(metrics != null) {
+            metrics.frameCompleted(cycles, frames, draws, collisions, agentNanos,
+                    instructionsPerFrame, CPUBuilder.FRAME_RATE);
+        }
+        display.frameCompleted();
+
+        if(FlightRecording.isActive()) {
+            frameEvents();
+        }
+        frameCycles = cycles;
+        frameDraws = draws;
+        frameCollisions = collisions;
     }
 
-    private void runInt() {
+    private void frameEvents() {
+        var frameEvent = new FrameEvent();
+        if(frameEvent.isEnabled()) {
+            frameEvent.frame = frames;
+            frameEvent.instructions = cycles - frameCycles;
+            frameEvent.commit();
+        }
+        var drawEvent = new DrawBatchEvent();
+        if(drawEvent.isEnabled() && draws != frameDraws) {
+            drawEvent.frame = frames;
+            drawEvent.draws = draws - frameDraws;
+            drawEvent.collisions = collisions - frameCollisions;
+            drawEvent.commit();
+        }
+    }
+
+    boolean cycle() {
         try {
+            var pc = registers.getPC();
+            if(breakpoints != null && breakpoints.contains(pc)) {
+                breakAt(pc);
+                if(halted) {
+                    return false;
+                }
+            }
             var opcode = fetch();
-            var instruction = Instructions.decode(opcode);
-            execute(instruction, opcode);
-            updateAgents(opcode);
+            var op = DecodeTable.decode(opcode);
+            if(profiler != null) {
+                profiler.count(pc, op.instruction);
+            }
+            execute(op);
+            cycles++;
+            updateAgents(pc, opcode);
         } catch (Exception e) {
-            this.halt();
-            e.printStackTrace();
+            fault(e);
+        }
+        return !halted;
+    }
+
+    // Executes one instruction on the calling thread. Returns false once halted.
+    public boolean step() {
+        if(halted) {
+            return false;
         }
+        // Watchpoints may have changed since the last step
+        selectBus();
+        return cycle();
+    }
+
+    // Runs up to budget instructions on the calling thread with the selected
+    // engine, without a clock. Timers follow the cycle count.
+    public long runCycles(long budget) {
+        selectBus();
+        if(timeSteps) {
+            return runTimed(budget);
+        }
+        if(engine == ExecutionEngine.INTERPRETER) {
+            long executed = 0;
+            while (executed < budget && !halted) {
+                cycle();
+                executed++;
+            }
+            return executed;
+        }
+        return runBlocks(budget);
+    }
+
+    public boolean runUntil(Predicate<CPUAgentContext> condition) {
+        return runUntil(condition, Long.MAX_VALUE);
+    }
+
+    // Steps on the calling thread until the condition holds after an
+    // instruction. Returns false if the CPU halted or the budget ran out first.
+    public boolean runUntil(Predicate<CPUAgentContext> condition, long budget) {
+        for(long i=0; i<budget; i++) {
+            if(!step()) {
+                return false;
+            }
+            if(condition.test(context)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // One block, or one instruction where there is none, at a time, keeping
+    // the one that took longest for the SlowFrame event
+    private long runTimed(long budget) {
+        long executed = 0;
+        while (executed < budget && !halted) {
+            var pc = Short.toUnsignedInt(registers.getPC());
+            var block = engine == ExecutionEngine.INTERPRETER ? null : blockCache.get(pc);
+            long start = System.nanoTime();
+            if(block == null) {
+                cycle();
+                executed++;
+            } else {
+                executed += runBlocks(Math.min(block.ops.length, budget - executed));
+            }
+            long nanos = System.nanoTime() - start;
+            if(nanos > slowestNanos) {
+                slowestNanos = nanos;
+                slowestPc = pc;
+            }
+        }
+        return executed;
+    }
+
+    private long runBlocks(long budget) {
+        long executed = 0;
+        while (executed < budget && !halted) {
+            var pc = Short.toUnsignedInt(registers.getPC());
+            var block = blockCache.get(pc);
+            if(block == null) {
+                cycle();
+                executed++;
+                continue;
+            }
+            var ops = block.ops;
+            var count = (int) Math.min(ops.length, budget - executed);
+            if(engine == ExecutionEngine.JIT && count == ops.length && agents.length == 0 && breakpoints == null) {
+                var compiled = compiledBlock(block);
+                if(compiled != null) {
+                    try {
+                        compiled.run(this, registers.getRegisters(), ops);
+                        executed += count;
+                        if(profiler != null) {
+                            profiler.count(block);
+                        }
+                    } catch (Exception e) {
+                        fault(e);
+                    }
+                    continue;
+                }
+            }
+            try {
+                for(int i=0; i<count; i++) {
+                    var op = ops[i];
+                    var opPC = (short) pc;
+                    if(breakpoints != null && breakpoints.contains(pc)) {
+                        breakAt(opPC);
+                        if(halted) {
+                            break;
+                        }
+                    }
+                    pc += 2;
+                    registers.setPC((short) pc);
+                    if(profiler != null) {
+                        profiler.count(opPC, op.instruction);
+                    }
+                    execute(op);
+                    cycles++;
+                    executed++;
+                    updateAgents(opPC, op.opcode);
+                    if(halted) {
+                        break;
+                    }
+                }
+            } catch (Exception e) {
+                fault(e);
+            }
+        }
+        return executed;
+    }
+
+    private CompiledBlock compiledBlock(Block block) {
+        if(block.compiled == null && block.compilable && ++block.executions == BlockCompiler.HOT_THRESHOLD) {
+            try {
+                block.compiled = compiler.compile(block);
+            } catch (IllegalStateException e) {
+                e.printStackTrace();
+            }
+        }
+        return block.compiled;
+    }
+
+    // Called by compiled blocks to sync state before an instruction they do not inline
+    void advance(int pc, int executed) {
+        registers.setPC((short) pc);
+        cycles += executed;
+    }
+
+    void retire(int executed) {
+        cycles += executed;
+    }
+
+    private void breakAt(short pc) {
+        context.pc = pc;
+        context.opcode = (short) ((Byte.toUnsignedInt(memory.read(pc)) << 8) | Byte.toUnsignedInt(memory.read(pc + 1)));
+        breakpoints.hit(context);
+        selectBus();
+    }
+
+    // Runs inside the accessing instruction, after its fetch moved the PC on
+    private void watchHit(int address, boolean write, byte value) {
+        var pc = (short) (registers.getPC() - 2);
+        context.pc = pc;
+        context.opcode = (short) ((Byte.toUnsignedInt(memory.read(pc)) << 8) | Byte.toUnsignedInt(memory.read(pc + 1)));
+        watchpoints.hit(context, address, write, value);
+    }
+
+    // Watchpoints change from other threads, so this runs where a debugger can
+    // have changed them: at the start of a run and after its callbacks
+    private void selectBus() {
+        bus = watchpoints == null || watchpoints.isEmpty() ? memory : watched;
+    }
+
+    // Timers tick once per frame, so the current tick follows from the cycle count
+    private long tick() {
+        return cycles / instructionsPerFrame;
     }
 
     private short fetch() {
@@ -74,49 +413,51 @@ public class CPUv2 {
     }
 
     public void addAgents(CPUAgent ...agent) {
-        agents.addAll(Arrays.asList(agent));
-    }
-
-    private void execute(Instructions instruction, short opcode) {
-        switch (instruction) {
-            case CLS:  clearScreen(opcode);       break;
-            case LDA:  loadAddress(opcode);       break;
-            case SET:  setRegister(opcode);       break;
-            case DRAW: draw(opcode);              break;
-            case ADD:  addRegister(opcode);       break;
-            case JMP:  jump(opcode);              break;
-            case SE:   skipEquals(opcode);        break;
-            case SNE:  skipNotEquals(opcode);     break;
-            case ADDA: addAddress(opcode);        break;
-            case CALL: call(opcode);              break;
-            case RET:  ret(opcode);               break;
-            case STDT: storeInDelayReg(opcode);   break;
-            case STST: storeInSoundReg(opcode);   break;
-            case LDDT: loadFromDelayReg(opcode);  break;
-            case ADDR: addRegisters(opcode);      break;
-            case SHL:  shiftLeft(opcode);         break;
-            case SHR:  shiftRight(opcode);        break;
-            case LDRD: loadRegisterDump(opcode);  break;
-            case STRD: storeRegisterDump(opcode); break;
-            case LDSA: loadSpriteAddress(opcode); break;
-            case STDR: binaryCodedDec(opcode);    break;
-            case LDKP: waitForKeyPress(opcode);   break;
-            case SKP:  skIfKeyPressed(opcode);    break;
-            case SKNP: skIfKeyNotPressed(opcode); break;
-            case RAND: randomNumber(opcode);      break;
-            case SETR: setRegToReg(opcode);       break;
-            case SER:  skipEqualsReg(opcode);     break;
-            case SNER: skipNotEqualsReg(opcode);  break;
-            case AND:  andRegisters(opcode);      break;
-            case OR:   orRegisters(opcode);       break;
-            case XOR:  xorRegisters(opcode);      break;
-            case SUB:  subRegisters(opcode);      break;
-            case SUBR: revSubRegisters(opcode);   break;
-            case JMPO: jumpWithReg(opcode);       break;
+        var combined = Arrays.copyOf(agents, agents.length + agent.length);
+        System.arraycopy(agent, 0, combined, agents.length, agent.length);
+        agents = combined;
+    }
+
+    void execute(DecodedOp op) {
+        switch (op.instruction) {
+            case CLS:  clearScreen(op);       break;
+            case LDA:  loadAddress(op);       break;
+            case SET:  setRegister(op);       break;
+            case DRAW: draw(op);              break;
+            case ADD:  addRegister(op);       break;
+            case JMP:  jump(op);              break;
+            case SE:   skipEquals(op);        break;
+            case SNE:  skipNotEquals(op);     break;
+            case ADDA: addAddress(op);        break;
+            case CALL: call(op);              break;
+            case RET:  ret(op);               break;
+            case STDT: storeInDelayReg(op);   break;
+            case STST: storeInSoundReg(op);   break;
+            case LDDT: loadFromDelayReg(op);  break;
+            case ADDR: addRegisters(op);      break;
+            case SHL:  shiftLeft(op);         break;
+            case SHR:  shiftRight(op);        break;
+            case LDRD: loadRegisterDump(op);  break;
+            case STRD: storeRegisterDump(op); break;
+            case LDSA: loadSpriteAddress(op); break;
+            case STDR: binaryCodedDec(op);    break;
+            case LDKP: waitForKeyPress(op);   break;
+            case SKP:  skIfKeyPressed(op);    break;
+            case SKNP: skIfKeyNotPressed(op); break;
+            case RAND: randomNumber(op);      break;
+            case SETR: setRegToReg(op);       break;
+            case SER:  skipEqualsReg(op);     break;
+            case SNER: skipNotEqualsReg(op);  break;
+            case AND:  andRegisters(op);      break;
+            case OR:   orRegisters(op);       break;
+            case XOR:  xorRegisters(op);      break;
+            case SUB:  subRegisters(op);      break;
+            case SUBR: revSubRegisters(op);   break;
+            case JMPO: jumpWithReg(op);       break;
             case USI:
             default:
-                throw new IllegalStateException("Unsupported instruction "+instruction.toString()
-                        + " Opcode: " + String.format("0x%04X", opcode));
+                throw new IllegalStateException("Unsupported instruction "+op.instruction.toString()
+                        + " Opcode: " + String.format("0x%04X", op.opcode));
         }
     }
 
@@ -124,65 +465,143 @@ public class CPUv2 {
         return display;
     }
 
+    public Registers getRegisters() {
+        return registers;
+    }
+
+    Memory getMemory() {
+        return memory;
+    }
+
+    public long getCycles() {
+        return cycles;
+    }
+
+    public long getFrames() {
+        return frames;
+    }
+
+    public int getInstructionsPerFrame() {
+        return instructionsPerFrame;
+    }
+
+    public void setInstructionsPerFrame(int instructionsPerFrame) {
+        if(instructionsPerFrame < 1) {
+            throw new IllegalArgumentException("Instructions per frame must be positive");
+        }
+        // Re-anchor the timers so their current values survive the new tick length
+        var delay = getDelayTimer();
+        var sound = getSoundTimer();
+        this.instructionsPerFrame = instructionsPerFrame;
+        registers.setDelayTimer(delay, tick());
+        registers.setSoundTimer(sound, tick());
+    }
+
+    public byte getDelayTimer() {
+        return registers.getDelayTimer(tick());
+    }
+
+    public byte getSoundTimer() {
+        return registers.getSoundTimer(tick());
+    }
+
+    public boolean isSoundOn() {
+        return getSoundTimer() != 0;
+    }
+
+    public boolean isHalted() {
+        return halted;
+    }
+
+    // The exception that halted the CPU, or null if it is running or was stopped
+    public Exception getHaltCause() {
+        return haltCause;
+    }
+
+    // Batch tools read the cause instead of having every fault printed
+    public void setLogFaults(boolean logFaults) {
+        this.logFaults = logFaults;
+    }
+
     // Instruction implementations
-    private void clearScreen(short opcode) {
+    private void clearScreen(DecodedOp op) {
         display.clear();
+        if(FlightRecording.isActive()) {
+            var event = new ClearScreenEvent();
+            if(event.isEnabled()) {
+                event.frame = frames;
+                event.pc = Short.toUnsignedInt(registers.getPC()) - 2;
+                event.commit();
+            }
+        }
     }
 
-    private void loadAddress(short opcode) {
-        var res = getAddress(opcode);
+    private void loadAddress(DecodedOp op) {
+        var res = op.nnn;
         registers.setI(res);
     }
 
-    private void addAddress(short opcode) {
-        var reg = getRegisterX(opcode);
+    private void addAddress(DecodedOp op) {
+        var reg = op.x;
         var res = registers.getRegister(reg);
         registers.addToI(res);
     }
 
-    private void jump(short opcode) {
-        var res = getAddress(opcode);
+    private void jump(DecodedOp op) {
+        var res = op.nnn;
         registers.setPC(res);
     }
 
-    private void jumpWithReg(short opcode) {
-        var res = getAddress(opcode);
+    private void jumpWithReg(DecodedOp op) {
+        var res = op.nnn;
         var reg0 = registers.getRegister(0);
         registers.setPC((short) (reg0 + res));
     }
 
-    private void call(short opcode) {
-        var res = getAddress(opcode);
-        stack.push(registers.getPC());
+    private void call(DecodedOp op) {
+        var res = op.nnn;
+        if(stackPointer == STACK_DEPTH) {
+            throw new IllegalStateException("Stack overflow at " + String.format("0x%04X", registers.getPC()));
+        }
+        stack[stackPointer++] = registers.getPC();
         registers.setPC(res);
+        if(callProfiler != null) {
+            callProfiler.enter(res, cycles + 1);
+        }
     }
 
-    private void ret(short opcode) {
-        var res = stack.pop();
+    private void ret(DecodedOp op) {
+        if(stackPointer == 0) {
+            throw new IllegalStateException("Stack underflow at " + String.format("0x%04X", registers.getPC()));
+        }
+        var res = stack[--stackPointer];
         registers.setPC(res);
+        if(callProfiler != null) {
+            callProfiler.exit(cycles + 1);
+        }
     }
 
-    private void skipEquals(short opcode) {
-        var reg = getRegisterX(opcode);
-        var val = getValue(opcode);
+    private void skipEquals(DecodedOp op) {
+        var reg = op.x;
+        var val = op.nn;
         var regVal = registers.getRegister(reg);
         if(regVal==val) {
             registers.skipNextInstruction();
         }
     }
 
-    private void skipNotEquals(short opcode) {
-        var reg = getRegisterX(opcode);
-        var val = getValue(opcode);
+    private void skipNotEquals(DecodedOp op) {
+        var reg = op.x;
+        var val = op.nn;
         var regVal = registers.getRegister(reg);
         if(regVal!=val) {
             registers.skipNextInstruction();
         }
     }
 
-    private void skipEqualsReg(short opcode) {
-        var regX = getRegisterX(opcode);
-        var regY = getRegisterX(opcode);
+    private void skipEqualsReg(DecodedOp op) {
+        var regX = op.x;
+        var regY = op.y;
         var x = registers.getRegister(regX);
         var y = registers.getRegister(regY);
         if(x==y) {
@@ -190,9 +609,9 @@ public class CPUv2 {
         }
     }
 
-    private void skipNotEqualsReg(short opcode) {
-        var regX = getRegisterX(opcode);
-        var regY = getRegisterX(opcode);
+    private void skipNotEqualsReg(DecodedOp op) {
+        var regX = op.x;
+        var regY = op.y;
         var x = registers.getRegister(regX);
         var y = registers.getRegister(regY);
         if(x!=y) {
@@ -200,35 +619,35 @@ public class CPUv2 {
         }
     }
 
-    private void setRegister(short opcode) {
-        var reg = getRegisterX(opcode);
-        var val = getValue(opcode);
+    private void setRegister(DecodedOp op) {
+        var reg = op.x;
+        var val = op.nn;
         registers.setRegister(reg, val);
     }
-    private void setRegToReg(short opcode) {
-        var regX = getRegisterX(opcode);
-        var regY = getRegisterY(opcode);
+    private void setRegToReg(DecodedOp op) {
+        var regX = op.x;
+        var regY = op.y;
         var val = registers.getRegister(regY);
         registers.setRegister(regX, val);
     }
 
-    private void randomNumber(short opcode) {
-        var reg = getRegisterX(opcode);
+    private void randomNumber(DecodedOp op) {
+        var reg = op.x;
 
-        byte n = (byte) (opcode & 0x00FF);
+        byte n = op.nn;
         var res = (byte) (random.nextInt(0x100) & n);
         registers.setRegister(reg, res);
     }
 
-    private void addRegister(short opcode) {
-        var reg = getRegisterX(opcode);
-        var val = getValue(opcode);
+    private void addRegister(DecodedOp op) {
+        var reg = op.x;
+        var val = op.nn;
         registers.addRegister(reg, val);
     }
 
-    private void addRegisters(short opcode) {
-        var regX = getRegisterX(opcode);
-        var regY = getRegisterY(opcode);
+    private void addRegisters(DecodedOp op) {
+        var regX = op.x;
+        var regY = op.y;
         var val = registers.getRegister(regY);
         var xVal = registers.getRegister(regX);
         var result = Byte.toUnsignedInt(xVal)
@@ -244,15 +663,15 @@ public class CPUv2 {
     }
 
     @SuppressWarnings("all")
-    private void subRegisters(short opcode) {
-        var regX = getRegisterX(opcode);
-        var regY = getRegisterY(opcode);
+    private void subRegisters(DecodedOp op) {
+        var regX = op.x;
+        var regY = op.y;
         var x = registers.getRegister(regX);
         var y = registers.getRegister(regY);
         var result = Byte.toUnsignedInt(x) - Byte.toUnsignedInt(y);
 
         registers.setRegister(0xF, (byte) 0);
-        if(x>=y) {
+        if(result >= 0) {
             registers.setRegister(0xF, (byte) 1);
         }
         if(result<0) {
@@ -262,15 +681,15 @@ public class CPUv2 {
     }
 
     @SuppressWarnings("all")
-    private void revSubRegisters(short opcode) {
-        var regX = getRegisterX(opcode);
-        var regY = getRegisterY(opcode);
+    private void revSubRegisters(DecodedOp op) {
+        var regX = op.x;
+        var regY = op.y;
         var x = registers.getRegister(regX);
         var y = registers.getRegister(regY);
         var result = Byte.toUnsignedInt(y) - Byte.toUnsignedInt(x);
 
         registers.setRegister(0xF, (byte) 0);
-        if(x<y) {
+        if(result >= 0) {
             registers.setRegister(0xF, (byte) 1);
         }
         if(result<0) {
@@ -279,9 +698,9 @@ public class CPUv2 {
         registers.setRegister(regX, (byte) result);
     }
 
-    private void andRegisters(short opcode) {
-        var regX = getRegisterX(opcode);
-        var regY = getRegisterY(opcode);
+    private void andRegisters(DecodedOp op) {
+        var regX = op.x;
+        var regY = op.y;
         var x = registers.getRegister(regX);
         var y = registers.getRegister(regY);
         var res = (byte) (x&y);
@@ -289,9 +708,9 @@ public class CPUv2 {
         registers.setRegister(regX, res);
     }
 
-    private void orRegisters(short opcode) {
-        var regX = getRegisterX(opcode);
-        var regY = getRegisterY(opcode);
+    private void orRegisters(DecodedOp op) {
+        var regX = op.x;
+        var regY = op.y;
         var x = registers.getRegister(regX);
         var y = registers.getRegister(regY);
         var res = (byte) (x|y);
@@ -299,9 +718,9 @@ public class CPUv2 {
         registers.setRegister(regX, res);
     }
 
-    private void xorRegisters(short opcode) {
-        var regX = getRegisterX(opcode);
-        var regY = getRegisterY(opcode);
+    private void xorRegisters(DecodedOp op) {
+        var regX = op.x;
+        var regY = op.y;
         var x = registers.getRegister(regX);
         var y = registers.getRegister(regY);
         var res = (byte) (x^y);
@@ -309,8 +728,8 @@ public class CPUv2 {
         registers.setRegister(regX, res);
     }
 
-    private void shiftRight(short opcode) {
-        var regX = getRegisterX(opcode);
+    private void shiftRight(DecodedOp op) {
+        var regX = op.x;
         var x = registers.getRegister(regX);
 
         registers.setRegister(0xF, (byte) 0);
@@ -321,8 +740,8 @@ public class CPUv2 {
         registers.setRegister(regX, res);
     }
 
-    private void shiftLeft(short opcode) {
-        var regX = getRegisterX(opcode);
+    private void shiftLeft(DecodedOp op) {
+        var regX = op.x;
         var x = registers.getRegister(regX);
 
         registers.setRegister(0xF, (byte) 0);
@@ -333,100 +752,83 @@ public class CPUv2 {
         registers.setRegister(regX, res);
     }
 
-    private void draw(short opcode) {
-        var n = opcode & 0x000F;
-        byte registerX = getRegisterX(opcode);
-        byte registerY = getRegisterY(opcode);
-
-        var x = registers.getRegister(registerX);
-        var y = registers.getRegister(registerY);
+    private void draw(DecodedOp op) {
+        var x = Byte.toUnsignedInt(registers.getRegister(op.x)) % Display.WIDTH;
+        var y = Byte.toUnsignedInt(registers.getRegister(op.y)) % Display.HEIGHT;
 
-        x = (byte) (x % (byte) Display.WIDTH);
-        y = (byte) (y % (byte) Display.HEIGHT);
-
-        registers.setRegister(0xF, (byte) 0);
-        for(int i=0; i<n; i++) {
-            if(y+i>=Display.HEIGHT) {
-                continue;
-            }
-            var I = registers.getI();
-            var part = memory.read(I+i);
-            for(int j=0; j<8; j++) {
-                if(x+j>=Display.WIDTH) {
-                    continue;
-                }
-                var mask = 0x80 >> j;
-                var p = display.getPixel(x+j, y+i);
-                var res = ((part & mask) != 0) ? 1 : 0;
-                var np = p ^ res;
-                display.setPixel(x+j, y+i, np);
-                if(p == 1 && np == 0) {
-                    registers.setRegister(0xF, (byte) 1);
-                }
-            }
+        var count = Math.min(op.n, Display.HEIGHT - y);
+        var I = registers.getI();
+        for(int i=0; i<count; i++) {
+            sprite[i] = bus.read(I+i);
+        }
+        var collision = display.drawSprite(x, y, sprite, count);
+        registers.setRegister(0xF, (byte) (collision ? 1 : 0));
+        draws++;
+        if(collision) {
+            collisions++;
         }
     }
 
-    private void storeInDelayReg(short opcode) {
-        var reg = getRegisterX(opcode);
+    private void storeInDelayReg(DecodedOp op) {
+        var reg = op.x;
         var regVal = registers.getRegister(reg);
-        registers.setDelayTimer(regVal);
+        registers.setDelayTimer(regVal, tick());
     }
 
-    private void storeInSoundReg(short opcode) {
-        var reg = getRegisterX(opcode);
+    private void storeInSoundReg(DecodedOp op) {
+        var reg = op.x;
         var regVal = registers.getRegister(reg);
-        registers.setSoundTimer(regVal);
+        registers.setSoundTimer(regVal, tick());
     }
 
-    private void loadFromDelayReg(short opcode) {
-        var reg = getRegisterX(opcode);
-        var regVal = registers.getDelayTimer();
+    private void loadFromDelayReg(DecodedOp op) {
+        var reg = op.x;
+        var regVal = registers.getDelayTimer(tick());
         registers.setRegister(reg, regVal);
     }
 
-    private void binaryCodedDec(short opcode) {
-        var regX =  getRegisterX(opcode);
+    private void binaryCodedDec(DecodedOp op) {
+        var regX =  op.x;
         var val = registers.getRegister(regX);
         var x = Byte.toUnsignedInt(val);
         var f = (byte) (x / 100);
         var s = (byte) (x / 10 % 10);
         var t = (byte) (x % 10);
         var I = registers.getI();
-        memory.write(I, f);
-        memory.write(I + 1, s);
-        memory.write(I + 2, t);
+        bus.write(I, f);
+        bus.write(I + 1, s);
+        bus.write(I + 2, t);
     }
 
-    private void loadSpriteAddress(short opcode) {
-        var regX =  getRegisterX(opcode);
+    private void loadSpriteAddress(DecodedOp op) {
+        var regX =  op.x;
         var val = registers.getRegister(regX);
-        var res = (short) (val * 5);
+        var res = (short) ((val & 0xF) * 5);
         registers.setI(res);
     }
 
-    private void loadRegisterDump(short opcode) {
-        var registerRange =  getRegisterX(opcode);
+    private void loadRegisterDump(DecodedOp op) {
+        var registerRange =  op.x;
         var I = registers.getI();
 
         for(int i=0; i<=registerRange; i++) {
-            var res = memory.read(I+i);
+            var res = bus.read(I+i);
             registers.setRegister(i, res);
         }
     }
 
-    private void storeRegisterDump(short opcode) {
-        var registerRange =  getRegisterX(opcode);
+    private void storeRegisterDump(DecodedOp op) {
+        var registerRange =  op.x;
         var I = registers.getI();
 
         for(int i=0; i<=registerRange; i++) {
             var res = registers.getRegister(i);
-            memory.write(I+i, res);
+            bus.write(I+i, res);
         }
     }
 
-    private void waitForKeyPress(short opcode) {
-        var regX =  getRegisterX(opcode);
+    private void waitForKeyPress(DecodedOp op) {
+        var regX =  op.x;
         var key = controls.waitForKeyPress();
         if(key<0) {
             var PC = registers.getPC();
@@ -436,59 +838,189 @@ public class CPUv2 {
         }
     }
 
-    private void skIfKeyPressed(short opcode) {
-        var regX =  getRegisterX(opcode);
+    private void skIfKeyPressed(DecodedOp op) {
+        var regX =  op.x;
         var val = registers.getRegister(regX);
         if(controls.isKeyPressed(val)) {
             registers.skipNextInstruction();
         }
     }
 
-    private void skIfKeyNotPressed(short opcode) {
-        var regX =  getRegisterX(opcode);
+    private void skIfKeyNotPressed(DecodedOp op) {
+        var regX =  op.x;
         var val = registers.getRegister(regX);
         if(controls.isKeyNotPressed(val)) {
             registers.skipNextInstruction();
         }
     }
 
+    public void setEngine(ExecutionEngine engine) {
+        this.engine = engine;
+    }
+
+    // Null removes every breakpoint check from the fetch path
+    public void setBreakpoints(Breakpoints breakpoints) {
+        this.breakpoints = breakpoints;
+    }
+
+    // Null, or a set without watchpoints, keeps the data path on Memory directly
+    public void setWatchpoints(Watchpoints watchpoints) {
+        this.watchpoints = watchpoints;
+        this.watched = watchpoints == null ? null : new WatchedMemory(memory, watchpoints, this::watchHit);
+        selectBus();
+    }
+
+    // Set before the CPU runs, or from the emulation thread
+    public void setProfiler(Profiler profiler) {
+        if(profiler != null) {
+            profiler.attach(memory);
+        }
+        this.profiler = profiler;
+    }
+
+    // Set before the CPU runs, or from the emulation thread
+    public void setCallProfiler(CallProfiler callProfiler) {
+        if(callProfiler != null) {
+            callProfiler.attach(this::getCycles);
+        }
+        this.callProfiler = callProfiler;
+    }
+
+    // Set before the CPU runs; the clock reports to the same metrics
+    public void setMetrics(MachineMetrics metrics) {
+        this.metrics = metrics;
+        clock.setMetrics(metrics);
+    }
+
+    // Records every frame of the clock-driven loop; must be set before run()
+    public void setRewindBuffer(RewindBuffer rewind) {
+        this.rewind = rewind;
+    }
+
     public void setRandom(Random random) {
         this.random = random;
     }
 
-    // Helpers
-    private short getAddress(short opcode) {
-        return (short) (opcode & 0x0FFF);
+    // Must run on the emulation thread, or while the CPU is not running
+    public void save(ByteBuffer buffer) {
+        buffer.putInt(SaveState.MAGIC).putShort(SaveState.VERSION);
+        saveCore(buffer);
+        memory.save(buffer);
+        for(int y=0; y<Display.HEIGHT; y++) {
+            buffer.putLong(display.getRow(y));
+        }
     }
 
-    private byte getRegisterX(short opcode) {
-        return (byte) ((opcode >> 8) & 0x0F);
+    public void save(OutputStream out) throws IOException {
+        var bytes = new byte[SaveState.SIZE];
+        save(ByteBuffer.wrap(bytes));
+        out.write(bytes);
     }
 
-    private byte getRegisterY(short opcode) {
-        return (byte) ((opcode >> 4) & 0x00F);
+    public void restore(ByteBuffer buffer) {
+        var start = buffer.position();
+        if(buffer.remaining() < SaveState.SIZE || buffer.getInt() != SaveState.MAGIC) {
+            throw new IllegalArgumentException("Not a save state");
+        }
+        var version = buffer.getShort();
+        if(version != SaveState.VERSION) {
+            throw new IllegalArgumentException("Unsupported save state version " + version);
+        }
+        // Checked before anything is restored, so a bad state leaves the CPU as it was
+        var depth = buffer.get(start + SaveState.STACK_DEPTH_OFFSET);
+        if(depth < 0 || depth > STACK_DEPTH) {
+            throw new IllegalArgumentException("Invalid stack depth " + depth);
+        }
+        var perFrame = buffer.getInt(start + SaveState.INSTRUCTIONS_PER_FRAME_OFFSET);
+        if(perFrame < 1) {
+            throw new IllegalArgumentException("Invalid instructions per frame " + perFrame);
+        }
+
+        restoreCore(buffer);
+        memory.restore(buffer);
+        for(int y=0; y<Display.HEIGHT; y++) {
+            display.setRow(y, buffer.getLong());
+        }
+        blockCache.clear();
     }
 
-    private byte getValue(short opcode) {
-        return (byte) (opcode & 0x00FF);
+    // Everything but memory and the display, SaveState.CORE_SIZE bytes
+    void saveCore(ByteBuffer buffer) {
+        registers.save(buffer);
+        buffer.put((byte) stackPointer);
+        for(var address : stack) {
+            buffer.putShort(address);
+        }
+        registers.saveTimers(buffer);
+        buffer.putLong(cycles).putLong(frames).putInt(instructionsPerFrame);
+        if(random instanceof SeedableRandom) {
+            buffer.put((byte) 1).putLong(((SeedableRandom) random).getState());
+        } else {
+            buffer.put((byte) 0).putLong(0);
+        }
     }
 
-    private void updateAgents(short opcode) {
+    void restoreCore(ByteBuffer buffer) {
+        if(callProfiler != null) {
+            callProfiler.flush();
+        }
+        registers.restore(buffer);
+        stackPointer = buffer.get();
+        for(int i=0; i<STACK_DEPTH; i++) {
+            stack[i] = buffer.getShort();
+        }
+        registers.restoreTimers(buffer);
+        cycles = buffer.getLong();
+        frames = buffer.getLong();
+        instructionsPerFrame = buffer.getInt();
+        var seeded = buffer.get() != 0;
+        var state = buffer.getLong();
+        if(seeded) {
+            if(!(random instanceof SeedableRandom)) {
+                random = new SeedableRandom();
+            }
+            ((SeedableRandom) random).setState(state);
+        }
+        if(callProfiler != null) {
+            callProfiler.rebase();
+        }
+    }
+
+    public void restore(InputStream in) throws IOException {
+        var bytes = new byte[SaveState.SIZE];
+        new DataInputStream(in).readFully(bytes);
+        restore(ByteBuffer.wrap(bytes));
+    }
+
+    // The context is a flyweight shared by every agent and cycle, so it is
+    // only valid for the duration of postCycle
+    private void updateAgents(short pc, short opcode) {
+        context.pc = pc;
+        context.opcode = opcode;
+        if(agents.length == 0) {
+            return;
+        }
+        long start = metrics != null ? System.nanoTime() : 0;
         for(var agent : agents) {
-            var ctx = new Context(opcode);
-            agent.postCycle(ctx);
+            agent.postCycle(context);
             if(agent.isHalt()) {
                 halt();
             }
         }
+        if(metrics != null) {
+            agentNanos += System.nanoTime() - start;
+        }
+        selectBus();
     }
 
     private class Context implements CPUAgentContext {
 
-        private final short opcode;
+        private short pc;
+        private short opcode;
 
-        private Context(short opcode) {
-            this.opcode = opcode;
+        @Override
+        public ByteBuffer getMemory() {
+            return memory.view();
         }
 
         @Override
@@ -496,6 +1028,23 @@ public class CPUv2 {
             return memory.snapshot();
         }
 
+        @Override
+        public void copyMemory(byte[] dest) {
+            memory.copyTo(dest);
+        }
+
+        @Override
+        public long getDisplayRow(int y) {
+            return display.getRow(y);
+        }
+
+        @Override
+        public void copyDisplay(long[] dest) {
+            for(int y=0; y<Display.HEIGHT; y++) {
+                dest[y] = display.getRow(y);
+            }
+        }
+
         @Override
         public byte getRegisterValue(int v) {
             return registers.getRegister(v);
@@ -513,7 +1062,17 @@ public class CPUv2 {
 
         @Override
         public short getCurrentOpcode() {
-            return 0;
+            return opcode;
+        }
+
+        @Override
+        public short getInstructionPC() {
+            return pc;
+        }
+
+        @Override
+        public long getCycle() {
+            return cycles;
         }
     }
 }
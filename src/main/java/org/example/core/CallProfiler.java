@@ -0,0 +1,186 @@
+package org.example.core;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.function.LongSupplier;
+
+// Follows CALL and RET with a shadow call stack kept as a tree of call paths.
+// Instructions are only attributed when a call or return happens, as the
+// cycles since the previous one, so the cost while running is a null check
+// per CALL/RET plus a short child lookup on CALL.
+//
+// Written by the emulation thread; flush and the reports should run on it too,
+// or once the CPU has stopped.
+public class CallProfiler {
+
+    public static final String ROOT = "main";
+
+    private static final class Node {
+        final int entry;
+        final Node parent;
+        Node[] children = new Node[0];
+        long self = 0;
+        long calls = 0;
+
+        Node(int entry, Node parent) {
+            this.entry = entry;
+            this.parent = parent;
+        }
+    }
+
+    private Node root = new Node(-1, null);
+    private Node current = root;
+    private long mark = 0;
+    private LongSupplier cycles = () -> mark;
+
+    void attach(LongSupplier cycles) {
+        this.cycles = cycles;
+        rebase();
+    }
+
+    // Continues from the root at the current cycle count, after a restore moved
+    // it and replaced the guest stack. Call flush before the restore.
+    void rebase() {
+        mark = cycles.getAsLong();
+        current = root;
+    }
+
+    // Cycle counts include the CALL, which is charged to the caller
+    void enter(int entry, long cycle) {
+        current.self += cycle - mark;
+        mark = cycle;
+        current = child(current, entry);
+        current.calls++;
+    }
+
+    // The RET is charged to the subroutine it leaves. A return the profiler
+    // did not see the call for, e.g. after attaching mid-run, stays at the root.
+    void exit(long cycle) {
+        current.self += cycle - mark;
+        mark = cycle;
+        if(current.parent != null) {
+            current = current.parent;
+        }
+    }
+
+    // Charges the instructions since the last call or return to the current subroutine
+    public void flush() {
+        var now = cycles.getAsLong();
+        current.self += now - mark;
+        mark = now;
+    }
+
+    public void reset() {
+        root = new Node(-1, null);
+        current = root;
+        mark = cycles.getAsLong();
+    }
+
+    // Instructions run in the subroutine itself, over every call path
+    public long getExclusive(int entry) {
+        return totals()[1][entry];
+    }
+
+    // Instructions run in the subroutine and everything it called. Recursive
+    // calls are counted once, at the outermost one.
+    public long getInclusive(int entry) {
+        return totals()[0][entry];
+    }
+
+    public long getCalls(int entry) {
+        return totals()[2][entry];
+    }
+
+    // One line per call path, "main;sub_2A0;sub_31C 1234", as read by flame graph tools
+    public void writeCollapsed(Writer out) throws IOException {
+        flush();
+        writeCollapsed(out, root, ROOT);
+    }
+
+    // Entry, calls, inclusive and exclusive instructions, busiest first
+    public void writeCsv(Writer out) throws IOException {
+        var totals = totals();
+        long all = Math.max(total(root), 1);
+
+        var entries = new ArrayList<Integer>();
+        for(int entry=0; entry<Memory.CAPACITY; entry++) {
+            if(totals[2][entry] != 0) {
+                entries.add(entry);
+            }
+        }
+        entries.sort(Comparator.comparingLong((Integer e) -> totals[0][e]).reversed().thenComparingInt(e -> e));
+
+        out.write("entry,calls,inclusive,exclusive,inclusive percent\n");
+        out.write(String.format(Locale.ROOT, "%s,0,%d,%d,100.00\n", ROOT, all, root.self));
+        for(var entry : entries) {
+            out.write(String.format(Locale.ROOT, "%s,%d,%d,%d,%.2f\n", name(entry), totals[2][entry],
+                    totals[0][entry], totals[1][entry], 100.0 * totals[0][entry] / all));
+        }
+    }
+
+    private long[][] totals() {
+        flush();
+        var totals = new long[3][Memory.CAPACITY];
+        summarize(root, totals, new int[Memory.CAPACITY]);
+        return totals;
+    }
+
+    private void writeCollapsed(Writer out, Node node, String path) throws IOException {
+        if(node.self > 0) {
+            out.write(path + " " + node.self + "\n");
+        }
+        for(var child : node.children) {
+            writeCollapsed(out, child, path + ";" + name(child.entry));
+        }
+    }
+
+    // totals[0] inclusive, totals[1] exclusive, totals[2] calls; active counts
+    // how often each entry is on the path from the root to node
+    private static long summarize(Node node, long[][] totals, int[] active) {
+        long inclusive = node.self;
+        if(node.entry >= 0) {
+            active[node.entry]++;
+        }
+        for(var child : node.children) {
+            inclusive += summarize(child, totals, active);
+        }
+        if(node.entry >= 0) {
+            active[node.entry]--;
+            totals[1][node.entry] += node.self;
+            totals[2][node.entry] += node.calls;
+            if(active[node.entry] == 0) {
+                totals[0][node.entry] += inclusive;
+            }
+        }
+        return inclusive;
+    }
+
+    private static long total(Node node) {
+        long total = node.self;
+        for(var child : node.children) {
+            total += total(child);
+        }
+        return total;
+    }
+
+    private static Node child(Node node, int entry) {
+        for(var child : node.children) {
+            if(child.entry == entry) {
+                return child;
+            }
+        }
+        var child = new Node(entry, node);
+        var children = new Node[node.children.length + 1];
+        System.arraycopy(node.children, 0, children, 0, node.children.length);
+        children[node.children.length] = child;
+        node.children = children;
+        return child;
+    }
+
+    private static String name(int entry) {
+        return String.format("sub_%03X", entry);
+    }
+}
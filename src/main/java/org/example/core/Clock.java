@@ -1,5 +1,7 @@
 package org.example.core;
 
+import org.example.core.metrics.MachineMetrics;
+
 import java.util.concurrent.*;
 
 public class Clock {
@@ -11,6 +13,11 @@ public class Clock {
 
     private ScheduledFuture<?> future;
 
+    private MachineMetrics metrics = null;
+    private long periodNanos;
+    private long startNanos;
+    private long ticks;
+
     public Clock(int refreshRate) {
         this.refreshRate = refreshRate;
     }
@@ -19,9 +26,29 @@ public class Clock {
         this.task = task;
     }
 
+    void setMetrics(MachineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     public void start() {
         long cycleLength = Math.round((1.0f / refreshRate) * 1e9);
-        future = executor.scheduleAtFixedRate(task, 0, cycleLength, TimeUnit.NANOSECONDS);
+        periodNanos = cycleLength;
+        ticks = 0;
+        startNanos = System.nanoTime();
+        future = executor.scheduleAtFixedRate(this::tick, 0, cycleLength, TimeUnit.NANOSECONDS);
+    }
+
+    // Drift is measured against the fixed-rate schedule, so a late frame
+    // shows up even when the executor catches up afterwards
+    private void tick() {
+        var expected = startNanos + ticks++ * periodNanos;
+        if(metrics == null) {
+            task.run();
+            return;
+        }
+        var now = System.nanoTime();
+        task.run();
+        metrics.clockTicked(Math.max(0, now - expected), System.nanoTime() - now, periodNanos);
     }
 
     public void startAndWait() {
@@ -34,7 +61,9 @@ public class Clock {
     }
 
     public void stop() throws InterruptedException {
-        this.future.cancel(true);
+        if(this.future != null) {
+            this.future.cancel(true);
+        }
         this.executor.shutdownNow();
         this.executor.awaitTermination(10, TimeUnit.MILLISECONDS);
     }
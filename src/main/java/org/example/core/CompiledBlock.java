@@ -0,0 +1,6 @@
+package org.example.core;
+
+interface CompiledBlock {
+
+    void run(CPUv2 cpu, byte[] v, DecodedOp[] ops);
+}
@@ -5,4 +5,7 @@ public interface Controls {
     boolean isKeyPressed(byte v);
     boolean isKeyNotPressed(byte v);
     byte waitForKeyPress();
+
+    // Called on the emulation thread before every 60 Hz frame
+    default void beginFrame(long cycle) {}
 }
@@ -0,0 +1,30 @@
+package org.example.core;
+
+import java.nio.ByteBuffer;
+
+// A 60 Hz down-counter that is never ticked. It remembers the value and the
+// tick it was written at, and works out the current value when read.
+final class CycleTimer {
+
+    private int value = 0;
+    private long writtenAt = 0;
+
+    byte get(long tick) {
+        long elapsed = tick - writtenAt;
+        return elapsed >= value ? 0 : (byte) (value - elapsed);
+    }
+
+    void set(byte value, long tick) {
+        this.value = Byte.toUnsignedInt(value);
+        this.writtenAt = tick;
+    }
+
+    void save(ByteBuffer buffer) {
+        buffer.put((byte) value).putLong(writtenAt);
+    }
+
+    void restore(ByteBuffer buffer) {
+        value = Byte.toUnsignedInt(buffer.get());
+        writtenAt = buffer.getLong();
+    }
+}
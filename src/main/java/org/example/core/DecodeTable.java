@@ -0,0 +1,23 @@
+package org.example.core;
+
+public final class DecodeTable {
+
+    private static final int SIZE = 0x10000;
+
+    // Built once per JVM; every opcode maps to an immutable, pre-extracted entry
+    private static final DecodedOp[] TABLE = build();
+
+    private DecodeTable() {}
+
+    public static DecodedOp decode(short opcode) {
+        return TABLE[Short.toUnsignedInt(opcode)];
+    }
+
+    private static DecodedOp[] build() {
+        var table = new DecodedOp[SIZE];
+        for(int i=0; i<SIZE; i++) {
+            table[i] = new DecodedOp((short) i);
+        }
+        return table;
+    }
+}
@@ -0,0 +1,50 @@
+package org.example.core;
+
+public final class DecodedOp {
+
+    final Instructions instruction;
+    final short opcode;
+    final int x;
+    final int y;
+    final int n;
+    final byte nn;
+    final short nnn;
+
+    DecodedOp(short opcode) {
+        this.instruction = Instructions.decode(opcode);
+        this.opcode = opcode;
+        this.x = (opcode >> 8) & 0x0F;
+        this.y = (opcode >> 4) & 0x0F;
+        this.n = opcode & 0x0F;
+        this.nn = (byte) (opcode & 0x00FF);
+        this.nnn = (short) (opcode & 0x0FFF);
+    }
+
+    public Instructions getInstruction() {
+        return instruction;
+    }
+
+    public short getOpcode() {
+        return opcode;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public int getN() {
+        return n;
+    }
+
+    public byte getNN() {
+        return nn;
+    }
+
+    public short getNNN() {
+        return nnn;
+    }
+}
@@ -8,6 +8,24 @@ public interface Display {
      int getPixel(int x, int y);
      void setPixel(int x, int y, int p);
 
+     // Packed row, leftmost pixel in the most significant bit
+     default long getRow(int y) {
+          long row = 0;
+          for (int x=0; x<WIDTH; x++) {
+               row = (row << 1) | getPixel(x, y);
+          }
+          return row;
+     }
+
+     default void setRow(int y, long row) {
+          for (int x=0; x<WIDTH; x++) {
+               setPixel(x, y, (int) (row >>> (63 - x)) & 1);
+          }
+     }
+
+     // Called on the emulation thread after every 60 Hz frame
+     default void frameCompleted() {}
+
      default void clear() {
           for (int y=0; y<HEIGHT; y++) {
                for (int x=0; x<WIDTH; x++) {
@@ -15,4 +33,21 @@ public interface Display {
                }
           }
      }
+
+     // XORs sprite rows onto the screen at (x, y), clipping at the edges.
+     // Returns true when a lit pixel was turned off.
+     default boolean drawSprite(int x, int y, byte[] rows, int count) {
+          boolean collision = false;
+          for (int i=0; i<count && y+i<HEIGHT; i++) {
+               for (int j=0; j<8 && x+j<WIDTH; j++) {
+                    var res = ((rows[i] & (0x80 >> j)) != 0) ? 1 : 0;
+                    var p = getPixel(x+j, y+i);
+                    setPixel(x+j, y+i, p ^ res);
+                    if (p == 1 && res == 1) {
+                         collision = true;
+                    }
+               }
+          }
+          return collision;
+     }
 }
@@ -0,0 +1,7 @@
+package org.example.core;
+
+public enum ExecutionEngine {
+    INTERPRETER, // Fetch and decode every instruction
+    BLOCK_CACHE, // Run cached, pre-decoded basic blocks
+    JIT          // Compile hot basic blocks to JVM bytecode
+}
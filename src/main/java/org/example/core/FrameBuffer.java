@@ -0,0 +1,64 @@
+package org.example.core;
+
+import java.util.Arrays;
+
+// One long per 64 pixel row, leftmost pixel in the most significant bit
+public class FrameBuffer implements Display {
+
+    private final long[] rows = new long[Display.HEIGHT];
+
+    @Override
+    public int getPixel(int x, int y) {
+        return (int) (rows[y] >>> (63 - x)) & 1;
+    }
+
+    @Override
+    public void setPixel(int x, int y, int p) {
+        var bit = 1L << (63 - x);
+        if(p != 0) {
+            rows[y] |= bit;
+        } else {
+            rows[y] &= ~bit;
+        }
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(rows, 0);
+    }
+
+    @Override
+    public boolean drawSprite(int x, int y, byte[] sprite, int count) {
+        long collision = 0;
+        int height = Math.min(count, Display.HEIGHT - y);
+        for(int i=0; i<height; i++) {
+            // Bits shifted past the right edge fall off, which clips the sprite
+            long bits = ((sprite[i] & 0xFFL) << 56) >>> x;
+            collision |= rows[y + i] & bits;
+            rows[y + i] ^= bits;
+        }
+        return collision != 0;
+    }
+
+    // 64-bit FNV-1a over the packed rows, stable across runs and JVMs
+    public long hash() {
+        long hash = 0xCBF29CE484222325L;
+        for(var row : rows) {
+            for(int shift=56; shift>=0; shift-=8) {
+                hash ^= (row >>> shift) & 0xFF;
+                hash *= 0x100000001B3L;
+            }
+        }
+        return hash;
+    }
+
+    @Override
+    public long getRow(int y) {
+        return rows[y];
+    }
+
+    @Override
+    public void setRow(int y, long row) {
+        rows[y] = row;
+    }
+}
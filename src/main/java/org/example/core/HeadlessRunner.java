@@ -0,0 +1,41 @@
+package org.example.core;
+
+public class HeadlessRunner {
+
+    private final CPUv2 cpu;
+
+    private long frameCycle = 0;
+
+    public HeadlessRunner(CPUv2 cpu) {
+        this.cpu = cpu;
+    }
+
+    // Stops at every frame boundary on the way to end the frame there and begin
+    // the next, as the clock-driven loop does, so per-frame counters see each
+    // frame's own work and posted key events are applied
+    public long runCycles(long cycles) {
+        int perFrame = cpu.getInstructionsPerFrame();
+        long executed = 0;
+        while (executed < cycles && !cpu.isHalted()) {
+            if(frameCycle == 0) {
+                cpu.beginFrame();
+            }
+            long ran = cpu.runCycles(Math.min(cycles - executed, Math.max(perFrame - frameCycle, 1)));
+            executed += ran;
+            frameCycle += ran;
+            while (frameCycle >= perFrame && !cpu.isHalted()) {
+                frameCycle -= perFrame;
+                cpu.endFrame();
+            }
+        }
+        return executed;
+    }
+
+    public long runFrames(long frames) {
+        long executed = 0;
+        for(long i=0; i<frames && !cpu.isHalted(); i++) {
+            executed += runCycles(cpu.getInstructionsPerFrame() - frameCycle);
+        }
+        return executed;
+    }
+}
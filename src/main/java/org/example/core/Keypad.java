@@ -0,0 +1,78 @@
+package org.example.core;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// The 16-key hex keypad. Key events can be posted from any thread but only
+// take effect at the start of a frame, on the emulation thread, so a session
+// is fully described by the cycle each event was applied at.
+public class Keypad implements Controls {
+
+    private static final int IDLE = -1;
+    private static final int WAITING = -2;
+
+    // Key in the low nibble, bit 4 set for a press; small enough for the Integer cache
+    private final Queue<Integer> posted = new ConcurrentLinkedQueue<>();
+
+    private int keys = 0;
+    private int awaited = IDLE;
+    private Listener listener = null;
+
+    public void post(int key, boolean down) {
+        posted.add((key & 0xF) | (down ? 0x10 : 0));
+    }
+
+    @Override
+    public void beginFrame(long cycle) {
+        Integer event;
+        while ((event = posted.poll()) != null) {
+            set(event & 0xF, (event & 0x10) != 0);
+            if(listener != null) {
+                listener.onKey(cycle, event & 0xF, (event & 0x10) != 0);
+            }
+        }
+    }
+
+    // Applies an event immediately; emulation thread only
+    public void set(int key, boolean down) {
+        if(down) {
+            keys |= 1 << key;
+            if(awaited == WAITING) {
+                awaited = key;
+            }
+        } else {
+            keys &= ~(1 << key);
+        }
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public boolean isKeyPressed(byte v) {
+        return (keys & (1 << (v & 0xF))) != 0;
+    }
+
+    @Override
+    public boolean isKeyNotPressed(byte v) {
+        return !isKeyPressed(v);
+    }
+
+    // The first call starts waiting; a key pressed after that is returned once
+    @Override
+    public byte waitForKeyPress() {
+        if(awaited >= 0) {
+            var key = awaited;
+            awaited = IDLE;
+            return (byte) key;
+        }
+        awaited = WAITING;
+        return -1;
+    }
+
+    @FunctionalInterface
+    public interface Listener {
+        void onKey(long cycle, int key, boolean down);
+    }
+}
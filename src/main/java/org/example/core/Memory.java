@@ -1,27 +1,159 @@
 package org.example.core;
 
-public class Memory {
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class Memory implements MemoryBus {
 
     public static final int CAPACITY = 4096;
+    public static final int PAGE_SIZE = 64;
+    public static final int PAGES = CAPACITY / PAGE_SIZE;
+    private static final int PAGE_SHIFT = 6;
+
     private final byte[] memory = new byte[CAPACITY];
+    private final ByteBuffer view = ByteBuffer.wrap(memory).asReadOnlyBuffer();
+
+    // Epoch of the last write to each page, -1 when never written
+    private final long[] pageEpochs = new long[PAGES];
+    private long epoch = 0;
+
+    public Memory() {
+        Arrays.fill(pageEpochs, -1);
+    }
+
+    private WriteListener writeListener = null;
 
     // TODO: Add logging and exception handling
 
+    @Override
     public byte read(int index) {
         return memory[index];
     }
 
+    @Override
     public void write(int index, byte data) {
         memory[index] = data;
+        pageEpochs[index >>> PAGE_SHIFT] = epoch;
+        if(writeListener != null) {
+            writeListener.onWrite(index, 1);
+        }
     }
 
     public void insertData(int index, byte[] data) {
         System.arraycopy(data, 0, memory, index, data.length);
+        touch(index, data.length);
+        if(writeListener != null) {
+            writeListener.onWrite(index, data.length);
+        }
+    }
+
+    private void touch(int index, int length) {
+        if(length == 0) {
+            return;
+        }
+        for(int page = index >>> PAGE_SHIFT; page <= (index + length - 1) >>> PAGE_SHIFT; page++) {
+            pageEpochs[page] = epoch;
+        }
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    // Closes the current epoch. Writes from now on are stamped with the returned one.
+    public long nextEpoch() {
+        return ++epoch;
+    }
+
+    // Bit p is set when page p was written during or after the given epoch
+    public long changedSince(long since) {
+        long mask = 0;
+        for(int page=0; page<PAGES; page++) {
+            if(pageEpochs[page] >= since) {
+                mask |= 1L << page;
+            }
+        }
+        return mask;
+    }
+
+    // Packs the pages in the mask, lowest page first, into a new array
+    public byte[] delta(long mask) {
+        var buff = new byte[Long.bitCount(mask) * PAGE_SIZE];
+        copyPages(mask, buff, 0);
+        return buff;
+    }
+
+    public int copyPages(long mask, byte[] dest, int offset) {
+        for(long m = mask; m != 0; m &= m - 1) {
+            var page = Long.numberOfTrailingZeros(m);
+            System.arraycopy(memory, page << PAGE_SHIFT, dest, offset, PAGE_SIZE);
+            offset += PAGE_SIZE;
+        }
+        return offset;
+    }
+
+    // Same as copyPages, into the buffer at its position
+    public void savePages(long mask, ByteBuffer buffer) {
+        for(long m = mask; m != 0; m &= m - 1) {
+            buffer.put(memory, Long.numberOfTrailingZeros(m) << PAGE_SHIFT, PAGE_SIZE);
+        }
+    }
+
+    // Inverse of savePages; the restored pages count as written in the current epoch
+    public void restorePages(long mask, ByteBuffer buffer) {
+        for(long m = mask; m != 0; m &= m - 1) {
+            var page = Long.numberOfTrailingZeros(m);
+            var index = page << PAGE_SHIFT;
+            buffer.get(memory, index, PAGE_SIZE);
+            pageEpochs[page] = epoch;
+            if(writeListener != null) {
+                writeListener.onWrite(index, PAGE_SIZE);
+            }
+        }
+    }
+
+    // Inverse of copyPages; returns the offset after the last page read
+    public int applyPages(long mask, byte[] src, int offset) {
+        var buffer = ByteBuffer.wrap(src, offset, src.length - offset);
+        restorePages(mask, buffer);
+        return buffer.position();
     }
 
     public byte[] snapshot() {
         var buff = new byte[CAPACITY];
-        System.arraycopy(memory, 0, buff, 0, CAPACITY);
+        copyTo(buff);
         return buff;
     }
+
+    public void copyTo(byte[] dest) {
+        System.arraycopy(memory, 0, dest, 0, CAPACITY);
+    }
+
+    public void save(ByteBuffer buffer) {
+        buffer.put(memory);
+    }
+
+    // Replaces the whole memory; every page counts as written in the current epoch
+    public void restore(ByteBuffer buffer) {
+        buffer.get(memory);
+        Arrays.fill(pageEpochs, epoch);
+        if(writeListener != null) {
+            writeListener.onWrite(0, CAPACITY);
+        }
+    }
+
+    // Live read-only view backed by the memory array, shared by every caller.
+    // Use absolute gets; the position and limit are reset on each call.
+    public ByteBuffer view() {
+        return view.clear();
+    }
+
+    public void setWriteListener(WriteListener writeListener) {
+        this.writeListener = writeListener;
+    }
+
+    @FunctionalInterface
+    public interface WriteListener {
+        void onWrite(int index, int length);
+    }
 }
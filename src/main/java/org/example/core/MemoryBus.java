@@ -0,0 +1,9 @@
+package org.example.core;
+
+// Data accesses made by instructions. Instruction fetch goes to Memory directly.
+public interface MemoryBus {
+
+    byte read(int index);
+
+    void write(int index, byte data);
+}
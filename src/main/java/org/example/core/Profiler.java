@@ -0,0 +1,109 @@
+package org.example.core;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+
+// Counts executed instructions per address and per Instructions value.
+// Written by the emulation thread only; readers on other threads may see
+// counts that are a few instructions stale.
+public class Profiler {
+
+    private final int[] counts = new int[Memory.CAPACITY];
+    private final long[] instructions = new long[Instructions.values().length];
+    private Memory memory = null;
+
+    void attach(Memory memory) {
+        this.memory = memory;
+    }
+
+    void count(int pc, Instructions instruction) {
+        counts[pc & 0xFFF]++;
+        instructions[instruction.ordinal()]++;
+    }
+
+    // Compiled blocks always run to the end, so every op ran once
+    void count(Block block) {
+        var pc = block.start;
+        for(var op : block.ops) {
+            count(pc, op.instruction);
+            pc += 2;
+        }
+    }
+
+    public int getCount(int address) {
+        return counts[address];
+    }
+
+    public long getCount(Instructions instruction) {
+        return instructions[instruction.ordinal()];
+    }
+
+    public void copyCounts(int[] dest) {
+        System.arraycopy(counts, 0, dest, 0, counts.length);
+    }
+
+    public long getTotal() {
+        long total = 0;
+        for(var count : instructions) {
+            total += count;
+        }
+        return total;
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        Arrays.fill(instructions, 0);
+    }
+
+    // CSV with the top hot spots by address, then the instruction histogram.
+    // Works on a copy, so it can run while the CPU keeps counting.
+    public void writeCsv(Writer out, int top) throws IOException {
+        var counts = this.counts.clone();
+        var instructions = this.instructions.clone();
+        long total = 0;
+        for(var count : instructions) {
+            total += count;
+        }
+        total = Math.max(total, 1);
+        var addresses = new ArrayList<Integer>();
+        for(int address=0; address<counts.length; address++) {
+            if(counts[address] != 0) {
+                addresses.add(address);
+            }
+        }
+        addresses.sort(Comparator.comparingInt((Integer a) -> counts[a]).reversed().thenComparingInt(a -> a));
+
+        out.write("address,opcode,instruction,count,percent\n");
+        for(var address : addresses.subList(0, Math.min(top, addresses.size()))) {
+            var opcode = opcodeAt(address);
+            out.write(String.format(Locale.ROOT, "%03X,%04X,%s,%d,%.2f\n", address, opcode,
+                    Instructions.decode(opcode), Integer.toUnsignedLong(counts[address]),
+                    100.0 * Integer.toUnsignedLong(counts[address]) / total));
+        }
+
+        out.write("\ninstruction,count,percent\n");
+        var kinds = Instructions.values();
+        var order = new ArrayList<Instructions>();
+        for(var kind : kinds) {
+            if(instructions[kind.ordinal()] != 0) {
+                order.add(kind);
+            }
+        }
+        order.sort(Comparator.comparingLong((Instructions k) -> instructions[k.ordinal()]).reversed());
+        for(var kind : order) {
+            out.write(String.format(Locale.ROOT, "%s,%d,%.2f\n", kind, instructions[kind.ordinal()],
+                    100.0 * instructions[kind.ordinal()] / total));
+        }
+    }
+
+    private short opcodeAt(int address) {
+        if(memory == null || address + 1 >= Memory.CAPACITY) {
+            return 0;
+        }
+        return (short) ((Byte.toUnsignedInt(memory.read(address)) << 8) | Byte.toUnsignedInt(memory.read(address + 1)));
+    }
+}
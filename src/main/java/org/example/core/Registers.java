@@ -1,13 +1,15 @@
 package org.example.core;
 
+import java.nio.ByteBuffer;
+
 public class Registers {
 
     private final byte[] V = new byte[0x10];
     private short I = 0;
     private short PC = 0x200;
 
-    private byte delayTimer = 0;
-    private byte soundTimer = 0;
+    private final CycleTimer delayTimer = new CycleTimer();
+    private final CycleTimer soundTimer = new CycleTimer();
 
     public short getI() {
         return I;
@@ -29,26 +31,22 @@ public class Registers {
         this.PC = PC;
     }
 
-    public byte getDelayTimer() {
-        return delayTimer;
+    public byte getDelayTimer(long tick) {
+        return delayTimer.get(tick);
     }
 
-    public void decDelayTimer() { delayTimer--; }
-
-    public void setDelayTimer(byte delayTimer) {
-        this.delayTimer = delayTimer;
+    public void setDelayTimer(byte delayTimer, long tick) {
+        this.delayTimer.set(delayTimer, tick);
     }
 
-    public byte getSoundTimer() {
-        return soundTimer;
+    public byte getSoundTimer(long tick) {
+        return soundTimer.get(tick);
     }
 
-    public void setSoundTimer(byte soundTimer) {
-        this.soundTimer = soundTimer;
+    public void setSoundTimer(byte soundTimer, long tick) {
+        this.soundTimer.set(soundTimer, tick);
     }
 
-    public void decSoundTimer() { soundTimer--; }
-
     public byte[] getRegisters() {
         return V;
     }
@@ -72,4 +70,24 @@ public class Registers {
     public void skipNextInstruction() {
         PC+=2;
     }
+
+    void save(ByteBuffer buffer) {
+        buffer.put(V).putShort(I).putShort(PC);
+    }
+
+    void saveTimers(ByteBuffer buffer) {
+        delayTimer.save(buffer);
+        soundTimer.save(buffer);
+    }
+
+    void restore(ByteBuffer buffer) {
+        buffer.get(V);
+        I = buffer.getShort();
+        PC = buffer.getShort();
+    }
+
+    void restoreTimers(ByteBuffer buffer) {
+        delayTimer.restore(buffer);
+        soundTimer.restore(buffer);
+    }
 }
@@ -0,0 +1,193 @@
+package org.example.core;
+
+import java.nio.ByteBuffer;
+
+// Per-frame history in a fixed off-heap ring. Every keyframeInterval frames a
+// full save state is stored; the frames in between only store the core state,
+// the memory pages written and the display rows changed since the previous
+// frame. Old frames are evicted a whole keyframe group at a time.
+public class RewindBuffer {
+
+    public static final int DEFAULT_CAPACITY = 16 << 20;
+    public static final int DEFAULT_FRAMES = 5 * 60 * CPUBuilder.FRAME_RATE;
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 60;
+
+    private static final byte KEYFRAME = 0;
+    private static final byte DELTA = 1;
+
+    private final ByteBuffer ring;
+    private final int keyframeInterval;
+
+    // Byte offset and length of each record, indexed by frame number modulo their length
+    private final int[] starts;
+    private final int[] lengths;
+    private long first = 0;
+    private long next = 0;
+    private int tail = 0;
+
+    private final long[] rows = new long[Display.HEIGHT];
+    private long epoch = -1;
+
+    private volatile boolean rewinding = false;
+
+    public RewindBuffer() {
+        this(DEFAULT_CAPACITY, DEFAULT_FRAMES, DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    public RewindBuffer(int capacity, int frames, int keyframeInterval) {
+        if(capacity < 4 * SaveState.SIZE || frames < 2 || keyframeInterval < 1) {
+            throw new IllegalArgumentException("Rewind buffer too small");
+        }
+        this.ring = ByteBuffer.allocateDirect(capacity);
+        this.keyframeInterval = keyframeInterval;
+        this.starts = new int[frames];
+        this.lengths = new int[frames];
+    }
+
+    public boolean isRewinding() {
+        return rewinding;
+    }
+
+    public void setRewinding(boolean rewinding) {
+        this.rewinding = rewinding;
+    }
+
+    public int size() {
+        return (int) (next - first);
+    }
+
+    public void clear() {
+        first = next = 0;
+        tail = 0;
+    }
+
+    // Called on the emulation thread at the end of a frame
+    public void record(CPUv2 cpu) {
+        var memory = cpu.getMemory();
+        var display = cpu.getDisplay();
+        boolean keyframe = next % keyframeInterval == 0 || next == first;
+
+        long pages = 0;
+        int changedRows = 0;
+        int length;
+        if(keyframe) {
+            length = 1 + SaveState.SIZE;
+        } else {
+            pages = memory.changedSince(epoch);
+            for(int y=0; y<Display.HEIGHT; y++) {
+                if(display.getRow(y) != rows[y]) {
+                    changedRows |= 1 << y;
+                }
+            }
+            length = 1 + SaveState.CORE_SIZE
+                    + 8 + Long.bitCount(pages) * Memory.PAGE_SIZE
+                    + 4 + Integer.bitCount(changedRows) * 8;
+        }
+
+        var start = reserve(length);
+        if(!keyframe && size() == 0) {
+            // The ring could not hold a whole keyframe group, so this frame starts a new one
+            keyframe = true;
+            length = 1 + SaveState.SIZE;
+            start = reserve(length);
+        }
+        ring.limit(ring.capacity()).position(start);
+        if(keyframe) {
+            ring.put(KEYFRAME);
+            cpu.save(ring);
+            for(int y=0; y<Display.HEIGHT; y++) {
+                rows[y] = display.getRow(y);
+            }
+        } else {
+            ring.put(DELTA);
+            cpu.saveCore(ring);
+            ring.putLong(pages);
+            memory.savePages(pages, ring);
+            ring.putInt(changedRows);
+            for(int m = changedRows; m != 0; m &= m - 1) {
+                var y = Integer.numberOfTrailingZeros(m);
+                rows[y] = display.getRow(y);
+                ring.putLong(rows[y]);
+            }
+        }
+        epoch = memory.nextEpoch();
+
+        var slot = (int) (next % starts.length);
+        starts[slot] = start;
+        lengths[slot] = length;
+        next++;
+    }
+
+    // Restores the frame before the newest one and forgets the newest.
+    // Returns false when there is no older frame left.
+    public boolean stepBack(CPUv2 cpu) {
+        if(size() < 2) {
+            return false;
+        }
+        next--;
+        tail = starts[(int) (next % starts.length)];
+        restore(cpu, next - 1);
+        return true;
+    }
+
+    private void restore(CPUv2 cpu, long frame) {
+        var keyframe = frame;
+        while (ring.get(starts[(int) (keyframe % starts.length)]) != KEYFRAME) {
+            keyframe--;
+        }
+
+        var memory = cpu.getMemory();
+        var display = cpu.getDisplay();
+        ring.limit(ring.capacity());
+        for(long f = keyframe; f <= frame; f++) {
+            ring.position(starts[(int) (f % starts.length)] + 1);
+            if(f == keyframe) {
+                cpu.restore(ring);
+                continue;
+            }
+            cpu.restoreCore(ring);
+            memory.restorePages(ring.getLong(), ring);
+            for(int m = ring.getInt(); m != 0; m &= m - 1) {
+                display.setRow(Integer.numberOfTrailingZeros(m), ring.getLong());
+            }
+        }
+
+        for(int y=0; y<Display.HEIGHT; y++) {
+            rows[y] = display.getRow(y);
+        }
+        epoch = memory.nextEpoch();
+    }
+
+    // Finds room for a record after the newest one, wrapping to the start of
+    // the ring when it does not fit, and evicts the records it overlaps
+    private int reserve(int length) {
+        if(length > ring.capacity()) {
+            throw new IllegalStateException("Frame of " + length + " bytes does not fit the rewind buffer");
+        }
+        var start = tail;
+        if(tail + length > ring.capacity()) {
+            start = 0;
+            // Records past the tail are the oldest, so they go before anything at the start
+            while (size() > 0 && starts[(int) (first % starts.length)] >= tail) {
+                evictGroup();
+            }
+        }
+        while (size() > 0 && (size() == starts.length || overlaps(first, start, length))) {
+            evictGroup();
+        }
+        tail = start + length;
+        return start;
+    }
+
+    private boolean overlaps(long frame, int start, int length) {
+        var slot = (int) (frame % starts.length);
+        return starts[slot] < start + length && start < starts[slot] + lengths[slot];
+    }
+
+    // Drops the oldest keyframe and the deltas that depend on it
+    private void evictGroup() {
+        do {
+            first++;
+        } while (first < next && ring.get(starts[(int) (first % starts.length)]) != KEYFRAME);
+    }
+}
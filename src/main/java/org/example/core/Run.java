@@ -1,21 +1,136 @@
 package org.example.core;
 
+import org.example.core.metrics.MachineMetrics;
+import org.example.core.movie.MovieRecorder;
 import org.example.gui.components.SwingDisplay;
 
+import java.awt.event.KeyEvent;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
 public class Run {
 
+    private static final int DEFAULT_SCALE = 8;
+
     public static void main(String[] args) throws IOException {
         if(args.length<1) {
             throw new IllegalArgumentException("You must provide a path to the rom");
         }
         Path program = Paths.get(args[0]);
 
-        var cpu = CPUBuilder.build(program);
-        ((SwingDisplay) cpu.getDisplay()).exitOnClose(cpu::halt);
+        int scale = DEFAULT_SCALE;
+        boolean grid = false;
+        boolean integerScaling = false;
+        Path state = null;
+        Path record = null;
+        Path callGraph = null;
+        for(int i=1; i<args.length; i++) {
+            switch (args[i]) {
+                case "--scale":         scale = Integer.parseInt(args[++i]); break;
+                case "--grid":          grid = true;                         break;
+                case "--integer-scale": integerScaling = true;               break;
+                case "--state":         state = Paths.get(args[++i]);        break;
+                case "--record":        record = Paths.get(args[++i]);       break;
+                case "--callgraph":     callGraph = Paths.get(args[++i]);    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        var display = new SwingDisplay(null, scale);
+        display.setGrid(grid);
+        display.setIntegerScaling(integerScaling);
+        var rom = CPUBuilder.loadProgram(program);
+        var cpu = CPUBuilder.build(rom, display, display);
+        var metrics = MachineMetrics.register(program.getFileName().toString());
+        cpu.setMetrics(metrics);
+        display.setMetrics(metrics);
+        display.exitOnClose(metrics::close);
+        if(record != null) {
+            // Rewinding or loading a state would break the recorded timeline
+            if(state != null) {
+                throw new IllegalArgumentException("--state cannot be combined with --record");
+            }
+            bindRecording(display, cpu, rom, record);
+        } else {
+            var rewind = new RewindBuffer();
+            cpu.setRewindBuffer(rewind);
+            display.whileKeyHeld(KeyEvent.VK_BACK_SPACE, rewind::setRewinding);
+            if(state != null) {
+                bindSaveState(display, cpu, state);
+            }
+            display.exitOnClose(cpu::halt);
+        }
+        if(callGraph != null) {
+            bindCallGraph(display, cpu, callGraph);
+        }
         cpu.run();
     }
+
+    // Writes the movie when the window is closed
+    private static void bindRecording(SwingDisplay display, CPUv2 cpu, byte[] rom, Path record) {
+        var recorder = MovieRecorder.start(cpu, display.getKeypad(), rom);
+        Runnable finish = () -> {
+            try (var out = Files.newOutputStream(record)) {
+                recorder.finish(cpu).write(out);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        };
+        display.exitOnClose(() -> {
+            if(cpu.isHalted()) {
+                finish.run();
+            } else {
+                // Stop on the emulation thread so the last frame is complete
+                cpu.runBetweenFrames(() -> {
+                    finish.run();
+                    cpu.halt();
+                });
+            }
+        });
+    }
+
+    // Writes the collapsed call stacks when the window is closed, after the
+    // close handlers above have stopped the CPU or queued its last frame task
+    private static void bindCallGraph(SwingDisplay display, CPUv2 cpu, Path callGraph) {
+        var profiler = new CallProfiler();
+        cpu.setCallProfiler(profiler);
+        Runnable write = () -> {
+            try (var out = Files.newBufferedWriter(callGraph)) {
+                profiler.writeCollapsed(out);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        };
+        display.exitOnClose(() -> {
+            if(cpu.isHalted()) {
+                write.run();
+            } else {
+                cpu.runBetweenFrames(write);
+            }
+        });
+    }
+
+    // F5 saves to the state file, F9 loads it back
+    private static void bindSaveState(SwingDisplay display, CPUv2 cpu, Path state) {
+        var writer = new SaveStateWriter();
+        display.onKey(KeyEvent.VK_F5, () -> cpu.runBetweenFrames(() -> writer.write(cpu, state)));
+        display.onKey(KeyEvent.VK_F9, () -> {
+            try {
+                var bytes = ByteBuffer.wrap(Files.readAllBytes(state));
+                cpu.runBetweenFrames(() -> {
+                    try {
+                        cpu.restore(bytes);
+                    } catch (IllegalArgumentException e) {
+                        e.printStackTrace();
+                    }
+                });
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
 }
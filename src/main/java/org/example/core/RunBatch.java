@@ -0,0 +1,62 @@
+package org.example.core;
+
+import org.example.core.batch.BatchRunner;
+import org.example.core.batch.InputScript;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+
+public class RunBatch {
+
+    private static final int DEFAULT_FRAMES = 600;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if(args.length<1) {
+            throw new IllegalArgumentException(
+                    "Usage: RunBatch <dir|rom>... [--frames N] [--threads N] [--engine NAME] [--keys SCRIPT] [--seed N]");
+        }
+
+        var inputs = new ArrayList<Path>();
+        int frames = DEFAULT_FRAMES;
+        int threads = Runtime.getRuntime().availableProcessors();
+        var engine = ExecutionEngine.BLOCK_CACHE;
+        var script = InputScript.NONE;
+        long seed = 0;
+        for(int i=0; i<args.length; i++) {
+            switch (args[i]) {
+                case "--frames":  frames = Integer.parseInt(args[++i]);        break;
+                case "--threads": threads = Integer.parseInt(args[++i]);       break;
+                case "--engine":  engine = ExecutionEngine.valueOf(args[++i]); break;
+                case "--keys":    script = InputScript.parse(args[++i]);       break;
+                case "--seed":    seed = Long.parseLong(args[++i]);            break;
+                default:
+                    if(args[i].startsWith("--")) {
+                        throw new IllegalArgumentException("Unknown option " + args[i]);
+                    }
+                    inputs.add(Paths.get(args[i]));
+            }
+        }
+
+        var roms = BatchRunner.collect(inputs);
+        var runner = new BatchRunner(frames, script, engine, seed);
+
+        long start = System.nanoTime();
+        var results = runner.run(roms, threads);
+        long elapsed = System.nanoTime() - start;
+
+        long instructions = 0;
+        int halted = 0;
+        for(var result : results) {
+            System.out.println(result);
+            instructions += result.getInstructions();
+            if(result.getHaltCause() != null) {
+                halted++;
+            }
+        }
+        double seconds = Math.max(elapsed, 1) / 1e9;
+        System.out.printf("%d ROMs, %d halted, %d instructions in %.3f s (%.0f instructions/s) on %d threads%n",
+                results.size(), halted, instructions, seconds, instructions / seconds, threads);
+    }
+}
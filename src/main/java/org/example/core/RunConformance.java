@@ -0,0 +1,66 @@
+package org.example.core;
+
+import org.example.core.batch.BatchRunner;
+import org.example.core.conformance.ConformanceResult;
+import org.example.core.conformance.ConformanceRunner;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+
+public class RunConformance {
+
+    private static final int DEFAULT_FRAMES = 60;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if(args.length<1) {
+            throw new IllegalArgumentException(
+                    "Usage: RunConformance <dir|rom>... [--update] [--frames N] [--threads N] [--engine NAME] [--reports DIR]");
+        }
+
+        var inputs = new ArrayList<Path>();
+        boolean update = false;
+        int frames = DEFAULT_FRAMES;
+        int threads = Runtime.getRuntime().availableProcessors();
+        var engine = ExecutionEngine.BLOCK_CACHE;
+        var reports = Paths.get("build", "conformance");
+        for(int i=0; i<args.length; i++) {
+            switch (args[i]) {
+                case "--update":  update = true;                               break;
+                case "--frames":  frames = Integer.parseInt(args[++i]);        break;
+                case "--threads": threads = Integer.parseInt(args[++i]);       break;
+                case "--engine":  engine = ExecutionEngine.valueOf(args[++i]); break;
+                case "--reports": reports = Paths.get(args[++i]);              break;
+                default:
+                    if(args[i].startsWith("--")) {
+                        throw new IllegalArgumentException("Unknown option " + args[i]);
+                    }
+                    inputs.add(Paths.get(args[i]));
+            }
+        }
+
+        var roms = BatchRunner.collect(inputs);
+        var runner = new ConformanceRunner(engine, reports, update, frames);
+
+        long start = System.nanoTime();
+        var results = runner.run(roms, threads);
+        long elapsed = System.nanoTime() - start;
+
+        int failed = 0;
+        for(var result : results) {
+            if(result.getStatus() != ConformanceResult.Status.PASS) {
+                System.out.println(result);
+            }
+            if(result.isFailure()) {
+                failed++;
+            }
+        }
+        double seconds = Math.max(elapsed, 1) / 1e9;
+        System.out.printf("%d ROMs, %d failed in %.3f s (%.0f ROMs/s) on %d threads%n",
+                results.size(), failed, seconds, results.size() / seconds, threads);
+        if(failed > 0) {
+            System.exit(1);
+        }
+    }
+}
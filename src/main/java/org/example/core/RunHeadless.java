@@ -0,0 +1,131 @@
+package org.example.core;
+
+import org.example.core.headless.HeadlessControls;
+import org.example.core.headless.HeadlessDisplay;
+import org.example.core.movie.Movie;
+import org.example.core.movie.MovieReplayer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+public class RunHeadless {
+
+    private static final long DEFAULT_FRAMES = 600;
+    private static final int PROFILE_TOP = 50;
+
+    public static void main(String[] args) throws IOException {
+        if(args.length<1) {
+            throw new IllegalArgumentException(
+                    "Usage: RunHeadless <rom> [--cycles N | --frames N] [--engine NAME] [--ipf N] [--screen]"
+                    + " [--load STATE] [--save STATE]"
+                    + " [--replay MOVIE] [--profile CSV] [--callgraph FILE]");
+        }
+        Path program = Paths.get(args[0]);
+
+        long cycles = -1;
+        long frames = DEFAULT_FRAMES;
+        boolean screen = false;
+        Path load = null;
+        Path save = null;
+        Path replay = null;
+        Path profile = null;
+        Path callGraph = null;
+        var engine = ExecutionEngine.BLOCK_CACHE;
+        int instructionsPerFrame = CPUBuilder.CYCLES_PER_FRAME;
+        // The last option that sets up the run itself, which a movie already decides
+        String runOption = null;
+        for(int i=1; i<args.length; i++) {
+            switch (args[i]) {
+                case "--cycles":    runOption = args[i]; cycles = Long.parseLong(args[++i]);                 break;
+                case "--frames":    runOption = args[i]; frames = Long.parseLong(args[++i]);                 break;
+                case "--engine":    engine = ExecutionEngine.valueOf(args[++i]);                             break;
+                case "--ipf":       runOption = args[i]; instructionsPerFrame = Integer.parseInt(args[++i]); break;
+                case "--screen":    screen = true;                                                           break;
+                case "--load":      runOption = args[i]; load = Paths.get(args[++i]);                        break;
+                case "--save":      save = Paths.get(args[++i]);                                             break;
+                case "--replay":    replay = Paths.get(args[++i]);                                           break;
+                case "--profile":   profile = Paths.get(args[++i]);                                          break;
+                case "--callgraph": callGraph = Paths.get(args[++i]);                                        break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        if(replay != null && runOption != null) {
+            throw new IllegalArgumentException(runOption + " cannot be combined with --replay");
+        }
+
+        var display = new HeadlessDisplay();
+        var profiler = profile != null ? new Profiler() : null;
+        var callProfiler = callGraph != null ? new CallProfiler() : null;
+        CPUv2 cpu;
+        long start;
+        long executed;
+        if(replay != null) {
+            // The movie decides the seed, timing and run length
+            Movie movie;
+            try (var in = Files.newInputStream(replay)) {
+                movie = Movie.read(in);
+            }
+            var replayer = new MovieReplayer(CPUBuilder.loadProgram(program), movie, display);
+            cpu = replayer.getCpu();
+            cpu.setEngine(engine);
+            cpu.setProfiler(profiler);
+            cpu.setCallProfiler(callProfiler);
+            start = System.nanoTime();
+            executed = replayer.run();
+        } else {
+            cpu = CPUBuilder.build(program, display, new HeadlessControls());
+            cpu.setEngine(engine);
+            cpu.setInstructionsPerFrame(instructionsPerFrame);
+            if(load != null) {
+                SaveStateWriter.read(cpu, load);
+            }
+            cpu.setProfiler(profiler);
+            cpu.setCallProfiler(callProfiler);
+            var runner = new HeadlessRunner(cpu);
+            start = System.nanoTime();
+            executed = cycles >= 0 ? runner.runCycles(cycles) : runner.runFrames(frames);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        if(save != null) {
+            try (var writer = new SaveStateWriter()) {
+                writer.write(cpu, save);
+            }
+        }
+
+        if(profiler != null) {
+            try (var out = Files.newBufferedWriter(profile)) {
+                profiler.writeCsv(out, PROFILE_TOP);
+            }
+        }
+        if(callProfiler != null) {
+            try (var out = Files.newBufferedWriter(callGraph)) {
+                callProfiler.writeCollapsed(out);
+            }
+        }
+
+        printState(cpu);
+        if(screen) {
+            System.out.print(display.render());
+        }
+
+        double seconds = Math.max(elapsed, 1) / 1e9;
+        System.out.printf("Executed %d instructions in %.3f ms (%.0f instructions/s)%n",
+                executed, elapsed / 1e6, executed / seconds);
+    }
+
+    private static void printState(CPUv2 cpu) {
+        var registers = cpu.getRegisters();
+        for(int i=0; i<0x10; i++) {
+            System.out.printf("V%X=%02X%s", i, registers.getRegister(i), i % 8 == 7 ? "\n" : " ");
+        }
+        System.out.printf("I=%04X PC=%04X DT=%02X ST=%02X%n",
+                registers.getI(), registers.getPC(),
+                cpu.getDelayTimer(), cpu.getSoundTimer());
+        System.out.printf("Cycles=%d Halted=%b%n", cpu.getCycles(), cpu.isHalted());
+    }
+}
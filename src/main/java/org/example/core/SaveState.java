@@ -0,0 +1,27 @@
+package org.example.core;
+
+// Layout of a version 1 save state, all values big-endian:
+//   magic, version
+//   V0-VF, I, PC, stack depth and 16 stack slots
+//   delay and sound timers as value and the tick they were written at
+//   cycles, frames, instructions per frame
+//   RNG flag and state, 4 KB of memory, 32 packed display rows
+public final class SaveState {
+
+    public static final int MAGIC = 0x43385353; // "C8SS"
+    public static final short VERSION = 1;
+
+    // Registers, stack, timers, counters and RNG
+    static final int CORE_SIZE = 16 + 2 + 2 + 1 + 16 * 2
+            + 2 * (1 + 8)
+            + 8 + 8 + 4
+            + 1 + 8;
+
+    // Offsets from the start of the state
+    static final int STACK_DEPTH_OFFSET = 4 + 2 + 16 + 2 + 2;
+    public static final int INSTRUCTIONS_PER_FRAME_OFFSET = STACK_DEPTH_OFFSET + 1 + 16 * 2 + 2 * (1 + 8) + 8 + 8;
+    public static final int MEMORY_OFFSET = 4 + 2 + CORE_SIZE;
+    public static final int SIZE = MEMORY_OFFSET + Memory.CAPACITY + Display.HEIGHT * 8;
+
+    private SaveState() {}
+}
@@ -0,0 +1,55 @@
+package org.example.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// Writes save states to disk on a background thread, one file at a time
+public class SaveStateWriter implements AutoCloseable {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        var thread = new Thread(r, "save-state-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Captures the state on the calling thread, which must be the emulation
+    // thread or one that owns a stopped CPU. Only the file I/O is deferred.
+    public Future<Path> write(CPUv2 cpu, Path path) {
+        var bytes = new byte[SaveState.SIZE];
+        cpu.save(ByteBuffer.wrap(bytes));
+        return executor.submit(() -> {
+            // Write aside and rename so a crash never leaves a torn file behind
+            var temp = path.resolveSibling(path.getFileName() + ".tmp");
+            try {
+                Files.write(temp, bytes);
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                e.printStackTrace();
+                throw e;
+            }
+            return path;
+        });
+    }
+
+    public static void read(CPUv2 cpu, Path path) throws IOException {
+        cpu.restore(ByteBuffer.wrap(Files.readAllBytes(path)));
+    }
+
+    // Finishes pending writes
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
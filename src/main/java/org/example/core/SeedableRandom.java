@@ -0,0 +1,45 @@
+package org.example.core;
+
+import java.util.Random;
+
+// Same generator as java.util.Random, but its 48-bit state can be read back
+// and restored, so save states and recordings reproduce RND exactly
+public class SeedableRandom extends Random {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    // Assigned from setSeed, which Random's constructor calls before field initializers run
+    private long state;
+
+    public SeedableRandom() {
+        this(System.nanoTime());
+    }
+
+    public SeedableRandom(long seed) {
+        super(seed);
+    }
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        super.setSeed(seed);
+        state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    public long getState() {
+        return state;
+    }
+
+    public void setState(long state) {
+        this.state = state & MASK;
+    }
+
+    @Override
+    protected int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+}
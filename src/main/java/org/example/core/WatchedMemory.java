@@ -0,0 +1,36 @@
+package org.example.core;
+
+// Stands in for Memory on the CPU's data path while watchpoints are set
+final class WatchedMemory implements MemoryBus {
+
+    interface Hit {
+        void onHit(int address, boolean write, byte value);
+    }
+
+    private final Memory memory;
+    private final Watchpoints watchpoints;
+    private final Hit hit;
+
+    WatchedMemory(Memory memory, Watchpoints watchpoints, Hit hit) {
+        this.memory = memory;
+        this.watchpoints = watchpoints;
+        this.hit = hit;
+    }
+
+    @Override
+    public byte read(int index) {
+        var value = memory.read(index);
+        if(watchpoints.isRead(index)) {
+            hit.onHit(index, false, value);
+        }
+        return value;
+    }
+
+    @Override
+    public void write(int index, byte data) {
+        memory.write(index, data);
+        if(watchpoints.isWrite(index)) {
+            hit.onHit(index, true, data);
+        }
+    }
+}
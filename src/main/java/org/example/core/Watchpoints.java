@@ -0,0 +1,81 @@
+package org.example.core;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Read and write watchpoints, one bit per address for each kind. While none
+// are set the CPU talks to Memory directly and pays nothing for them.
+public class Watchpoints {
+
+    public interface Listener {
+        // Called on the emulation thread from inside the accessing instruction;
+        // ctx.getInstructionPC() is that instruction. Value is the byte read or written.
+        void onWatchpoint(CPUAgentContext ctx, int address, boolean write, byte value);
+    }
+
+    private static final int WORDS = Memory.CAPACITY / 64;
+
+    private final AtomicLongArray reads = new AtomicLongArray(WORDS);
+    private final AtomicLongArray writes = new AtomicLongArray(WORDS);
+    private final Listener listener;
+    private volatile boolean empty = true;
+
+    public Watchpoints(Listener listener) {
+        this.listener = listener;
+    }
+
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    public boolean isRead(int address) {
+        return (reads.get((address >> 6) & 0x3F) & (1L << address)) != 0;
+    }
+
+    public boolean isWrite(int address) {
+        return (writes.get((address >> 6) & 0x3F) & (1L << address)) != 0;
+    }
+
+    // Both ends are inclusive
+    public void watchReads(int from, int to) {
+        update(reads, from, to, true);
+    }
+
+    public void watchWrites(int from, int to) {
+        update(writes, from, to, true);
+    }
+
+    public void unwatch(int from, int to) {
+        update(reads, from, to, false);
+        update(writes, from, to, false);
+    }
+
+    public void clearAll() {
+        for(int i=0; i<WORDS; i++) {
+            reads.set(i, 0);
+            writes.set(i, 0);
+        }
+        empty = true;
+    }
+
+    void hit(CPUAgentContext ctx, int address, boolean write, byte value) {
+        listener.onWatchpoint(ctx, address, write, value);
+    }
+
+    private void update(AtomicLongArray bits, int from, int to, boolean set) {
+        if(from < 0 || to >= Memory.CAPACITY || from > to) {
+            throw new IllegalArgumentException(String.format("Bad watch range %X-%X", from, to));
+        }
+        for(int address=from; address<=to; address++) {
+            long word;
+            long bit = 1L << address;
+            do {
+                word = bits.get(address >> 6);
+            } while (!bits.compareAndSet(address >> 6, word, set ? word | bit : word & ~bit));
+        }
+        boolean none = true;
+        for(int i=0; i<WORDS && none; i++) {
+            none = reads.get(i) == 0 && writes.get(i) == 0;
+        }
+        empty = none;
+    }
+}
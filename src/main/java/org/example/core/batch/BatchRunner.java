@@ -0,0 +1,116 @@
+package org.example.core.batch;
+
+import org.example.core.*;
+import org.example.core.headless.HeadlessDisplay;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Runs many ROMs headlessly on a work-stealing pool. Every ROM gets its own
+// CPU on one worker thread; nothing is shared and no Clock is started.
+public class BatchRunner {
+
+    private final int frames;
+    private final InputScript script;
+    private final ExecutionEngine engine;
+    private final long seed;
+
+    public BatchRunner(int frames, InputScript script, ExecutionEngine engine, long seed) {
+        this.frames = frames;
+        this.script = script;
+        this.engine = engine;
+        this.seed = seed;
+    }
+
+    // Results are in the order of the given ROMs
+    public List<RomResult> run(List<Path> roms, int threads) throws InterruptedException {
+        return runAll(roms, threads, this::run);
+    }
+
+    // Applies task to every ROM on a work-stealing pool of the given size.
+    // Results are in the order of the given ROMs.
+    public static <T> List<T> runAll(List<Path> roms, int threads, Function<Path, T> task) throws InterruptedException {
+        ExecutorService pool = Executors.newWorkStealingPool(threads);
+        try {
+            var tasks = new ArrayList<Callable<T>>(roms.size());
+            for(var rom : roms) {
+                tasks.add(() -> task.apply(rom));
+            }
+            var results = new ArrayList<T>(roms.size());
+            for(var future : pool.invokeAll(tasks)) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    public RomResult run(Path rom) {
+        byte[] program;
+        try {
+            program = Files.readAllBytes(rom);
+        } catch (IOException e) {
+            return new RomResult(rom, 0, new byte[0x10], (short) 0, (short) 0, 0, 0, e);
+        }
+        return run(rom, program);
+    }
+
+    public RomResult run(Path rom, byte[] program) {
+        if(program.length > Memory.CAPACITY - 0x200) {
+            var error = new IllegalArgumentException("ROM of " + program.length + " bytes does not fit in memory");
+            return new RomResult(rom, 0, new byte[0x10], (short) 0, (short) 0, 0, 0, error);
+        }
+
+        var display = new HeadlessDisplay();
+        var keypad = new Keypad();
+        var cpu = CPUBuilder.build(program, display, keypad);
+        cpu.setLogFaults(false);
+        cpu.setEngine(engine);
+        cpu.setRandom(new SeedableRandom(seed));
+        var runner = new HeadlessRunner(cpu);
+
+        int next = 0;
+        for(int frame=0; frame<frames && !cpu.isHalted(); frame++) {
+            next = script.apply(next, frame, keypad);
+            runner.runFrames(1);
+        }
+
+        var registers = cpu.getRegisters();
+        return new RomResult(rom, display.hash(), registers.getRegisters().clone(),
+                registers.getI(), registers.getPC(), cpu.getCycles(), cpu.getFrames(), cpu.getHaltCause());
+    }
+
+    // A directory is searched recursively for .ch8 files, sorted by path
+    public static List<Path> collect(List<Path> inputs) throws IOException {
+        var roms = new ArrayList<Path>();
+        for(var input : inputs) {
+            if(Files.isDirectory(input)) {
+                try (Stream<Path> files = Files.walk(input)) {
+                    roms.addAll(files
+                            .filter(Files::isRegularFile)
+                            .filter(path -> path.getFileName().toString().toLowerCase().endsWith(".ch8"))
+                            .sorted()
+                            .collect(Collectors.toList()));
+                }
+            } else {
+                roms.add(input);
+            }
+        }
+        return roms;
+    }
+}
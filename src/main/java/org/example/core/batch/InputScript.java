@@ -0,0 +1,66 @@
+package org.example.core.batch;
+
+import org.example.core.Keypad;
+
+import java.util.Arrays;
+
+// Key presses and releases at fixed frames, written as comma separated
+// FRAME+KEY or FRAME-KEY entries with hex keys, e.g. "30+5,45-5,60+A"
+public final class InputScript {
+
+    public static final InputScript NONE = new InputScript(new int[0], new byte[0]);
+
+    private final int[] frames;
+    private final byte[] events;
+
+    private InputScript(int[] frames, byte[] events) {
+        this.frames = frames;
+        this.events = events;
+    }
+
+    public static InputScript parse(String script) {
+        if(script.isBlank()) {
+            return NONE;
+        }
+        var entries = script.split(",");
+        var frames = new int[entries.length];
+        var events = new byte[entries.length];
+        for(int i=0; i<entries.length; i++) {
+            var entry = entries[i].trim();
+            var sign = Math.max(entry.indexOf('+'), entry.indexOf('-'));
+            if(sign < 1 || sign == entry.length() - 1) {
+                throw new IllegalArgumentException("Invalid input entry " + entry);
+            }
+            frames[i] = Integer.parseInt(entry.substring(0, sign));
+            var key = Integer.parseInt(entry.substring(sign + 1), 16);
+            if(key < 0 || key > 0xF) {
+                throw new IllegalArgumentException("Invalid key in " + entry);
+            }
+            events[i] = (byte) (key | (entry.charAt(sign) == '+' ? 0x10 : 0));
+        }
+
+        // Stable sort by frame, so entries for one frame apply in written order
+        var order = new Integer[entries.length];
+        for(int i=0; i<order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(frames[a], frames[b]));
+        var sortedFrames = new int[order.length];
+        var sortedEvents = new byte[order.length];
+        for(int i=0; i<order.length; i++) {
+            sortedFrames[i] = frames[order[i]];
+            sortedEvents[i] = events[order[i]];
+        }
+        return new InputScript(sortedFrames, sortedEvents);
+    }
+
+    // Applies the events for the frame; returns the index to continue from
+    int apply(int from, long frame, Keypad keypad) {
+        int i = from;
+        while (i < frames.length && frames[i] <= frame) {
+            keypad.set(events[i] & 0xF, (events[i] & 0x10) != 0);
+            i++;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.core.batch;
+
+import java.nio.file.Path;
+
+public final class RomResult {
+
+    private final Path rom;
+    private final long frameHash;
+    private final byte[] registers;
+    private final short i;
+    private final short pc;
+    private final long instructions;
+    private final long frames;
+    private final Exception haltCause;
+
+    RomResult(Path rom, long frameHash, byte[] registers, short i, short pc,
+              long instructions, long frames, Exception haltCause) {
+        this.rom = rom;
+        this.frameHash = frameHash;
+        this.registers = registers;
+        this.i = i;
+        this.pc = pc;
+        this.instructions = instructions;
+        this.frames = frames;
+        this.haltCause = haltCause;
+    }
+
+    public Path getRom() {
+        return rom;
+    }
+
+    public long getFrameHash() {
+        return frameHash;
+    }
+
+    public byte[] getRegisters() {
+        return registers.clone();
+    }
+
+    public short getI() {
+        return i;
+    }
+
+    public short getPC() {
+        return pc;
+    }
+
+    public long getInstructions() {
+        return instructions;
+    }
+
+    public long getFrames() {
+        return frames;
+    }
+
+    // Null when the ROM ran for every frame
+    public Exception getHaltCause() {
+        return haltCause;
+    }
+
+    // One line: rom, framebuffer hash, V0-VF, I, PC, instructions, frames, halt cause
+    @Override
+    public String toString() {
+        var builder = new StringBuilder();
+        builder.append(rom).append(' ');
+        builder.append(String.format("hash=%016X v=", frameHash));
+        for(var v : registers) {
+            builder.append(String.format("%02X", v));
+        }
+        builder.append(String.format(" i=%04X pc=%04X instructions=%d frames=%d",
+                Short.toUnsignedInt(i), Short.toUnsignedInt(pc), instructions, frames));
+        if(haltCause != null) {
+            builder.append(" halted=").append(haltCause);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,46 @@
+package org.example.core.conformance;
+
+import java.nio.file.Path;
+import java.util.List;
+
+public final class ConformanceResult {
+
+    public enum Status { PASS, FAIL, MISSING, UPDATED, ERROR }
+
+    private final Path rom;
+    private final Status status;
+    private final List<String> differences;
+
+    ConformanceResult(Path rom, Status status, List<String> differences) {
+        this.rom = rom;
+        this.status = status;
+        this.differences = differences;
+    }
+
+    public Path getRom() {
+        return rom;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    // What differed from the golden, or why the ROM could not be checked
+    public List<String> getDifferences() {
+        return differences;
+    }
+
+    public boolean isFailure() {
+        return status == Status.FAIL || status == Status.MISSING || status == Status.ERROR;
+    }
+
+    @Override
+    public String toString() {
+        var builder = new StringBuilder();
+        builder.append(status).append(' ').append(rom);
+        for(var difference : differences) {
+            builder.append(System.lineSeparator()).append("    ").append(difference);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,138 @@
+package org.example.core.conformance;
+
+import org.example.core.*;
+import org.example.core.batch.BatchRunner;
+import org.example.core.headless.HeadlessDisplay;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+// Runs each ROM headlessly for the length given in its golden file
+// (rom.ch8 -> rom.golden) and compares the final state. A mismatch writes
+// <name>.diff.png to the report directory. In update mode the goldens are
+// rewritten from the current run instead; new goldens run for defaultFrames.
+public class ConformanceRunner {
+
+    public static final String GOLDEN_SUFFIX = ".golden";
+
+    private static final int SCALE = 8;
+    private static final int BOTH = 0xFFFFFF;
+    private static final int EXPECTED_ONLY = 0xE04040;
+    private static final int ACTUAL_ONLY = 0x40C040;
+
+    private final ExecutionEngine engine;
+    private final Path reports;
+    private final boolean update;
+    private final int defaultFrames;
+
+    public ConformanceRunner(ExecutionEngine engine, Path reports, boolean update, int defaultFrames) {
+        this.engine = engine;
+        this.reports = reports;
+        this.update = update;
+        this.defaultFrames = defaultFrames;
+    }
+
+    // Results are in the order of the given ROMs
+    public List<ConformanceResult> run(List<Path> roms, int threads) throws InterruptedException {
+        return BatchRunner.runAll(roms, threads, this::check);
+    }
+
+    public ConformanceResult check(Path rom) {
+        var goldenPath = goldenPath(rom);
+        try {
+            GoldenState expected = null;
+            if(Files.exists(goldenPath)) {
+                try (var in = Files.newBufferedReader(goldenPath, StandardCharsets.UTF_8)) {
+                    expected = GoldenState.read(in);
+                }
+            } else if(!update) {
+                return new ConformanceResult(rom, ConformanceResult.Status.MISSING, List.of("no " + goldenPath.getFileName()));
+            }
+
+            var unit = expected != null ? expected.getUnit() : GoldenState.Unit.FRAMES;
+            var length = expected != null ? expected.getLength() : defaultFrames;
+            var cpu = execute(Files.readAllBytes(rom), unit, length);
+            if(cpu.getHaltCause() != null) {
+                return new ConformanceResult(rom, ConformanceResult.Status.ERROR, List.of("halted: " + cpu.getHaltCause()));
+            }
+            var actual = GoldenState.capture(cpu, unit, length);
+
+            if(update) {
+                if(actual.equals(expected)) {
+                    return new ConformanceResult(rom, ConformanceResult.Status.PASS, List.of());
+                }
+                try (var out = Files.newBufferedWriter(goldenPath, StandardCharsets.UTF_8)) {
+                    actual.write(out);
+                }
+                return new ConformanceResult(rom, ConformanceResult.Status.UPDATED, List.of());
+            }
+
+            var differences = expected.diff(actual);
+            if(differences.isEmpty()) {
+                return new ConformanceResult(rom, ConformanceResult.Status.PASS, differences);
+            }
+            writeDiff(rom, expected, actual);
+            return new ConformanceResult(rom, ConformanceResult.Status.FAIL, differences);
+        } catch (IOException | RuntimeException e) {
+            return new ConformanceResult(rom, ConformanceResult.Status.ERROR, List.of(e.toString()));
+        }
+    }
+
+    public static Path goldenPath(Path rom) {
+        var name = rom.getFileName().toString();
+        var dot = name.lastIndexOf('.');
+        return rom.resolveSibling((dot < 0 ? name : name.substring(0, dot)) + GOLDEN_SUFFIX);
+    }
+
+    public Path diffPath(Path rom) {
+        var golden = goldenPath(rom).getFileName().toString();
+        return reports.resolve(golden.substring(0, golden.length() - GOLDEN_SUFFIX.length()) + ".diff.png");
+    }
+
+    private CPUv2 execute(byte[] program, GoldenState.Unit unit, long length) {
+        var cpu = CPUBuilder.build(program, new HeadlessDisplay(), new Keypad());
+        cpu.setLogFaults(false);
+        cpu.setEngine(engine);
+        cpu.setRandom(new SeedableRandom(0));
+        var runner = new HeadlessRunner(cpu);
+        if(unit == GoldenState.Unit.FRAMES) {
+            runner.runFrames(length);
+        } else {
+            runner.runCycles(length);
+        }
+        return cpu;
+    }
+
+    // White where both frames are lit, red where only the golden is, green where only this run is
+    private void writeDiff(Path rom, GoldenState expected, GoldenState actual) throws IOException {
+        var image = new BufferedImage(Display.WIDTH * SCALE, Display.HEIGHT * SCALE, BufferedImage.TYPE_INT_RGB);
+        for(int y=0; y<Display.HEIGHT; y++) {
+            var e = expected.getRow(y);
+            var a = actual.getRow(y);
+            for(int x=0; x<Display.WIDTH; x++) {
+                var bit = 1L << (Display.WIDTH - 1 - x);
+                var inExpected = (e & bit) != 0;
+                var inActual = (a & bit) != 0;
+                if(!inExpected && !inActual) {
+                    continue;
+                }
+                var rgb = inExpected && inActual ? BOTH : inExpected ? EXPECTED_ONLY : ACTUAL_ONLY;
+                image.setRGB(x * SCALE, y * SCALE, SCALE, SCALE, fill(rgb), 0, SCALE);
+            }
+        }
+        Files.createDirectories(reports);
+        ImageIO.write(image, "png", diffPath(rom).toFile());
+    }
+
+    private static int[] fill(int rgb) {
+        var pixels = new int[SCALE * SCALE];
+        Arrays.fill(pixels, rgb);
+        return pixels;
+    }
+}
@@ -0,0 +1,233 @@
+package org.example.core.conformance;
+
+import org.example.core.CPUv2;
+import org.example.core.Display;
+import org.example.core.Memory;
+import org.example.core.SaveState;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// The machine state a conformance ROM must reach: V0-VF, I, PC, both timers,
+// a hash of memory and the 32 display rows. A golden file is this state as
+// text, preceded by how long the ROM runs, e.g. "run=60 frames".
+public final class GoldenState {
+
+    public enum Unit { FRAMES, CYCLES }
+
+    private static final long FNV_OFFSET = 0xCBF29CE484222325L;
+
+    private final Unit unit;
+    private final long length;
+    private final byte[] registers;
+    private final short i;
+    private final short pc;
+    private final byte delay;
+    private final byte sound;
+    private final long memoryHash;
+    private final long[] rows;
+
+    GoldenState(Unit unit, long length, byte[] registers, short i, short pc,
+                byte delay, byte sound, long memoryHash, long[] rows) {
+        this.unit = unit;
+        this.length = length;
+        this.registers = registers;
+        this.i = i;
+        this.pc = pc;
+        this.delay = delay;
+        this.sound = sound;
+        this.memoryHash = memoryHash;
+        this.rows = rows;
+    }
+
+    public static GoldenState capture(CPUv2 cpu, Unit unit, long length) {
+        var buffer = ByteBuffer.allocate(SaveState.SIZE);
+        cpu.save(buffer);
+        long memoryHash = FNV_OFFSET;
+        for(int a=0; a<Memory.CAPACITY; a++) {
+            memoryHash = fnv(memoryHash, buffer.get(SaveState.MEMORY_OFFSET + a));
+        }
+        var rows = new long[Display.HEIGHT];
+        for(int y=0; y<Display.HEIGHT; y++) {
+            rows[y] = cpu.getDisplay().getRow(y);
+        }
+        var registers = cpu.getRegisters();
+        return new GoldenState(unit, length, registers.getRegisters().clone(), registers.getI(), registers.getPC(),
+                cpu.getDelayTimer(), cpu.getSoundTimer(), memoryHash, rows);
+    }
+
+    public Unit getUnit() {
+        return unit;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public long getRow(int y) {
+        return rows[y];
+    }
+
+    // 64-bit FNV-1a over the registers, timers, memory hash and display rows
+    public long hash() {
+        long hash = FNV_OFFSET;
+        for(var v : registers) {
+            hash = fnv(hash, v);
+        }
+        hash = fnv(hash, (byte) (i >> 8));
+        hash = fnv(hash, (byte) i);
+        hash = fnv(hash, (byte) (pc >> 8));
+        hash = fnv(hash, (byte) pc);
+        hash = fnv(hash, delay);
+        hash = fnv(hash, sound);
+        hash = fnv(hash, memoryHash);
+        for(var row : rows) {
+            hash = fnv(hash, row);
+        }
+        return hash;
+    }
+
+    // One line per field that differs, empty when the states match
+    public List<String> diff(GoldenState actual) {
+        var differences = new ArrayList<String>();
+        for(int v=0; v<registers.length; v++) {
+            if(registers[v] != actual.registers[v]) {
+                differences.add(String.format("V%X expected %02X but was %02X", v, registers[v], actual.registers[v]));
+            }
+        }
+        if(i != actual.i) {
+            differences.add(String.format("I expected %04X but was %04X", i, actual.i));
+        }
+        if(pc != actual.pc) {
+            differences.add(String.format("PC expected %04X but was %04X", pc, actual.pc));
+        }
+        if(delay != actual.delay) {
+            differences.add(String.format("DT expected %02X but was %02X", delay, actual.delay));
+        }
+        if(sound != actual.sound) {
+            differences.add(String.format("ST expected %02X but was %02X", sound, actual.sound));
+        }
+        if(memoryHash != actual.memoryHash) {
+            differences.add("memory differs");
+        }
+        for(int y=0; y<Display.HEIGHT; y++) {
+            if(rows[y] != actual.rows[y]) {
+                differences.add(String.format("row %d expected %016X but was %016X", y, rows[y], actual.rows[y]));
+            }
+        }
+        return differences;
+    }
+
+    public void write(Writer out) throws IOException {
+        out.write(String.format("run=%d %s%n", length, unit.name().toLowerCase()));
+        out.write(String.format("hash=%016X%n", hash()));
+        var v = new StringBuilder();
+        for(var value : registers) {
+            v.append(String.format("%02X", value));
+        }
+        out.write("v=" + v + System.lineSeparator());
+        out.write(String.format("i=%04X%npc=%04X%ndt=%02X%nst=%02X%nmemory=%016X%n",
+                i, pc, delay, sound, memoryHash));
+        for(var row : rows) {
+            out.write(String.format("row=%016X%n", row));
+        }
+    }
+
+    public static GoldenState read(BufferedReader in) throws IOException {
+        Unit unit = null;
+        long length = 0;
+        Long hash = null;
+        byte[] registers = null;
+        short i = 0;
+        short pc = 0;
+        byte delay = 0;
+        byte sound = 0;
+        long memoryHash = 0;
+        var rows = new long[Display.HEIGHT];
+        int row = 0;
+
+        String line;
+        while ((line = in.readLine()) != null) {
+            line = line.trim();
+            if(line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            var separator = line.indexOf('=');
+            if(separator < 0) {
+                throw new IllegalArgumentException("Malformed golden line: " + line);
+            }
+            var key = line.substring(0, separator);
+            var value = line.substring(separator + 1);
+            switch (key) {
+                case "run":
+                    var parts = value.split(" ");
+                    length = Long.parseLong(parts[0]);
+                    unit = Unit.valueOf(parts[1].toUpperCase());
+                    break;
+                case "hash":   hash = Long.parseUnsignedLong(value, 16);              break;
+                case "v":      registers = parseBytes(value);                         break;
+                case "i":      i = (short) Integer.parseInt(value, 16);               break;
+                case "pc":     pc = (short) Integer.parseInt(value, 16);              break;
+                case "dt":     delay = (byte) Integer.parseInt(value, 16);            break;
+                case "st":     sound = (byte) Integer.parseInt(value, 16);            break;
+                case "memory": memoryHash = Long.parseUnsignedLong(value, 16);        break;
+                case "row":
+                    if(row == Display.HEIGHT) {
+                        throw new IllegalArgumentException("More than " + Display.HEIGHT + " rows");
+                    }
+                    rows[row++] = Long.parseUnsignedLong(value, 16);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown golden key " + key);
+            }
+        }
+        if(unit == null || length < 0 || registers == null || registers.length != 16 || row != Display.HEIGHT) {
+            throw new IllegalArgumentException("Incomplete golden file");
+        }
+
+        var state = new GoldenState(unit, length, registers, i, pc, delay, sound, memoryHash, rows);
+        if(hash != null && hash != state.hash()) {
+            throw new IllegalArgumentException("Golden hash does not match its fields");
+        }
+        return state;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(!(o instanceof GoldenState)) {
+            return false;
+        }
+        var other = (GoldenState) o;
+        return unit == other.unit && length == other.length && hash() == other.hash()
+                && Arrays.equals(registers, other.registers) && Arrays.equals(rows, other.rows);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(hash());
+    }
+
+    private static byte[] parseBytes(String hex) {
+        var bytes = new byte[hex.length() / 2];
+        for(int b=0; b<bytes.length; b++) {
+            bytes[b] = (byte) Integer.parseInt(hex.substring(b * 2, b * 2 + 2), 16);
+        }
+        return bytes;
+    }
+
+    private static long fnv(long hash, byte b) {
+        return (hash ^ (b & 0xFF)) * 0x100000001B3L;
+    }
+
+    private static long fnv(long hash, long value) {
+        for(int shift=56; shift>=0; shift-=8) {
+            hash = fnv(hash, (byte) (value >>> shift));
+        }
+        return hash;
+    }
+}
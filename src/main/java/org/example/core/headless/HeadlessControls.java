@@ -0,0 +1,34 @@
+package org.example.core.headless;
+
+import org.example.core.Controls;
+
+public class HeadlessControls implements Controls {
+
+    private int keys = 0;
+
+    public void press(byte key) {
+        keys |= 1 << key;
+    }
+
+    public void release(byte key) {
+        keys &= ~(1 << key);
+    }
+
+    @Override
+    public boolean isKeyPressed(byte v) {
+        return (keys & (1 << (v & 0xF))) != 0;
+    }
+
+    @Override
+    public boolean isKeyNotPressed(byte v) {
+        return !isKeyPressed(v);
+    }
+
+    @Override
+    public byte waitForKeyPress() {
+        if(keys == 0) {
+            return -1;
+        }
+        return (byte) Integer.numberOfTrailingZeros(keys);
+    }
+}
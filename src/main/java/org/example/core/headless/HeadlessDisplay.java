@@ -0,0 +1,18 @@
+package org.example.core.headless;
+
+import org.example.core.Display;
+import org.example.core.FrameBuffer;
+
+public class HeadlessDisplay extends FrameBuffer {
+
+    public String render() {
+        var builder = new StringBuilder((Display.WIDTH + 1) * Display.HEIGHT);
+        for (int y=0; y<Display.HEIGHT; y++) {
+            for (int x=0; x<Display.WIDTH; x++) {
+                builder.append(getPixel(x, y) != 0 ? '#' : '.');
+            }
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+}
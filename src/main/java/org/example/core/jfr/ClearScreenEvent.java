@@ -0,0 +1,17 @@
+package org.example.core.jfr;
+
+import jdk.jfr.*;
+
+@Name("org.example.chip8.ClearScreen")
+@Label("Clear Screen")
+@Category({"CHIP-8", "Display"})
+@Description("A CLS (00E0) instruction")
+@StackTrace(false)
+public class ClearScreenEvent extends Event {
+
+    @Label("Frame")
+    public long frame;
+
+    @Label("PC")
+    public int pc;
+}
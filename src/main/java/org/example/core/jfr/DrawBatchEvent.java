@@ -0,0 +1,20 @@
+package org.example.core.jfr;
+
+import jdk.jfr.*;
+
+@Name("org.example.chip8.DrawBatch")
+@Label("Sprite Draw Batch")
+@Category({"CHIP-8", "Display"})
+@Description("The sprite draws of one frame")
+@StackTrace(false)
+public class DrawBatchEvent extends Event {
+
+    @Label("Frame")
+    public long frame;
+
+    @Label("Draws")
+    public long draws;
+
+    @Label("Collisions")
+    public long collisions;
+}
@@ -0,0 +1,45 @@
+package org.example.core.jfr;
+
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+// Whether any JFR recording is running. The emulation loop checks this before
+// creating an event: isEnabled() alone still leaves the allocation in place
+// once C2 has seen a recording commit the event, even after it stopped.
+// Listening does not start JFR; the flag follows recordings started later
+// from jcmd, JMC or -XX:StartFlightRecording.
+public final class FlightRecording {
+
+    private static volatile boolean active = false;
+
+    static {
+        FlightRecorder.addListener(new FlightRecorderListener() {
+            @Override
+            public void recorderInitialized(FlightRecorder recorder) {
+                update(recorder);
+            }
+
+            @Override
+            public void recordingStateChanged(Recording recording) {
+                update(FlightRecorder.getFlightRecorder());
+            }
+        });
+    }
+
+    private FlightRecording() {
+    }
+
+    public static boolean isActive() {
+        return active;
+    }
+
+    private static void update(FlightRecorder recorder) {
+        var running = false;
+        for(var recording : recorder.getRecordings()) {
+            running |= recording.getState() == RecordingState.RUNNING;
+        }
+        active = running;
+    }
+}
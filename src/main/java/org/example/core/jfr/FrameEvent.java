@@ -0,0 +1,17 @@
+package org.example.core.jfr;
+
+import jdk.jfr.*;
+
+@Name("org.example.chip8.Frame")
+@Label("Frame")
+@Category({"CHIP-8", "Emulation"})
+@Description("One emulated frame: the instructions for 1/60 s of guest time")
+@StackTrace(false)
+public class FrameEvent extends Event {
+
+    @Label("Frame")
+    public long frame;
+
+    @Label("Instructions")
+    public long instructions;
+}
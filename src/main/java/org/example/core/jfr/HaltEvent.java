@@ -0,0 +1,23 @@
+package org.example.core.jfr;
+
+import jdk.jfr.*;
+
+@Name("org.example.chip8.Halt")
+@Label("Halt")
+@Category({"CHIP-8", "Emulation"})
+@Description("The CPU stopped, either on request or because an instruction failed")
+@StackTrace(true)
+public class HaltEvent extends Event {
+
+    @Label("Reason")
+    public String reason;
+
+    @Label("Faulted")
+    public boolean faulted;
+
+    @Label("PC")
+    public int pc;
+
+    @Label("Instructions")
+    public long instructions;
+}
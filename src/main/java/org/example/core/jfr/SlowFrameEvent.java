@@ -0,0 +1,42 @@
+package org.example.core.jfr;
+
+import jdk.jfr.*;
+
+// Committed only for frames longer than the threshold, 17 ms by default,
+// which is just over the 60 Hz frame budget. The event ends in runFrame, so a
+// stack trace would always be the same; it names the block or instruction
+// that took longest instead.
+@Name("org.example.chip8.SlowFrame")
+@Label("Slow Frame")
+@Category({"CHIP-8", "Emulation"})
+@Description("A frame that took longer than its budget on the host")
+@Threshold("17 ms")
+@StackTrace(false)
+public class SlowFrameEvent extends Event {
+
+    @Label("Frame")
+    public long frame;
+
+    @Label("Instructions")
+    public long instructions;
+
+    @Label("Start PC")
+    @Description("Guest PC when the frame started")
+    public int startPc;
+
+    @Label("End PC")
+    @Description("Guest PC when the frame ended")
+    public int endPc;
+
+    @Label("Draws")
+    public long draws;
+
+    @Label("Slowest PC")
+    @Description("Guest PC of the block or instruction that took longest")
+    public int slowestPc;
+
+    @Label("Slowest Duration")
+    @Description("Host time spent in that block or instruction")
+    @Timespan(Timespan.NANOSECONDS)
+    public long slowestDuration;
+}
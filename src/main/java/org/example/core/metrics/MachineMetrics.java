@@ -0,0 +1,257 @@
+package org.example.core.metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Metrics for one machine, registered as an MBean under
+// org.example.chip8:type=Machine,name=<name>. The CPU and clock publish
+// their own plain counters once per frame from the emulation thread, so
+// the instruction path never touches this class. Halts and display frames
+// come from other threads and go into LongAdders.
+public class MachineMetrics implements MachineMetricsMBean, AutoCloseable {
+
+    public static final String DOMAIN = "org.example.chip8";
+
+    private static final long WINDOW_NANOS = 1_000_000_000L;
+
+    private final String name;
+    private final LongSupplier nanoTime;
+    private ObjectName objectName = null;
+
+    // Written by the emulation thread once per frame
+    private volatile long instructions = 0;
+    private volatile long frames = 0;
+    private volatile long draws = 0;
+    private volatile long collisions = 0;
+    private volatile double instructionsPerSecond = 0;
+    private volatile double framesPerSecond = 0;
+    private volatile double targetInstructionsPerSecond = 0;
+    private volatile double drawsPerFrame = 0;
+    private volatile double agentNanosPerCycle = 0;
+    private volatile long driftNanos = 0;
+    private volatile long maxDriftNanos = 0;
+    private volatile long overruns = 0;
+
+    // Start of the current rate window, emulation thread only
+    private long windowStart = -1;
+    private long windowInstructions;
+    private long windowFrames;
+    private long windowDraws;
+    private long windowAgentNanos;
+
+    private final LongAdder halts = new LongAdder();
+    private final LongAdder faults = new LongAdder();
+    private final LongAdder presented = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private volatile String lastHaltCause = "";
+
+    public MachineMetrics(String name) {
+        this(name, System::nanoTime);
+    }
+
+    // The rate windows are measured with the given nanosecond time source
+    public MachineMetrics(String name, LongSupplier nanoTime) {
+        this.name = name;
+        this.nanoTime = nanoTime;
+    }
+
+    // Registers on the platform MBean server, adding a suffix when the name is taken
+    public static MachineMetrics register(String name) {
+        var server = ManagementFactory.getPlatformMBeanServer();
+        for(int attempt=1; ; attempt++) {
+            var unique = attempt == 1 ? name : name + "#" + attempt;
+            var metrics = new MachineMetrics(unique);
+            try {
+                metrics.objectName = new ObjectName(DOMAIN + ":type=Machine,name=" + ObjectName.quote(unique));
+                server.registerMBean(metrics, metrics.objectName);
+                return metrics;
+            } catch (InstanceAlreadyExistsException e) {
+                // Another machine runs the same ROM
+            } catch (JMException e) {
+                throw new IllegalStateException("Cannot register metrics for " + name, e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if(objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+        objectName = null;
+    }
+
+    // Called by the CPU at the end of every frame with its running totals
+    public void frameCompleted(long instructions, long frames, long draws, long collisions,
+                               long agentNanos, int instructionsPerFrame, int frameRate) {
+        this.instructions = instructions;
+        this.frames = frames;
+        this.draws = draws;
+        this.collisions = collisions;
+        this.targetInstructionsPerSecond = (double) instructionsPerFrame * frameRate;
+
+        var now = nanoTime.getAsLong();
+        if(windowStart < 0) {
+            startWindow(now, instructions, frames, draws, agentNanos);
+            return;
+        }
+        var elapsed = now - windowStart;
+        if(elapsed < WINDOW_NANOS) {
+            return;
+        }
+        var seconds = elapsed / 1e9;
+        var windowedFrames = frames - windowFrames;
+        var windowedInstructions = instructions - windowInstructions;
+        instructionsPerSecond = windowedInstructions / seconds;
+        framesPerSecond = windowedFrames / seconds;
+        drawsPerFrame = windowedFrames == 0 ? 0 : (double) (draws - windowDraws) / windowedFrames;
+        agentNanosPerCycle = windowedInstructions == 0 ? 0 : (double) (agentNanos - windowAgentNanos) / windowedInstructions;
+        startWindow(now, instructions, frames, draws, agentNanos);
+    }
+
+    // Called by the clock after every frame it ran
+    public void clockTicked(long driftNanos, long workNanos, long periodNanos) {
+        this.driftNanos = driftNanos;
+        if(driftNanos > maxDriftNanos) {
+            maxDriftNanos = driftNanos;
+        }
+        if(workNanos > periodNanos) {
+            overruns = overruns + 1;
+        }
+    }
+
+    public void halted() {
+        halts.increment();
+    }
+
+    public void faulted(Exception cause) {
+        faults.increment();
+        lastHaltCause = String.valueOf(cause);
+    }
+
+    public void framePresented() {
+        presented.increment();
+    }
+
+    public void frameCoalesced() {
+        coalesced.increment();
+    }
+
+    private void startWindow(long now, long instructions, long frames, long draws, long agentNanos) {
+        windowStart = now;
+        windowInstructions = instructions;
+        windowFrames = frames;
+        windowDraws = draws;
+        windowAgentNanos = agentNanos;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getInstructions() {
+        return instructions;
+    }
+
+    @Override
+    public long getFrames() {
+        return frames;
+    }
+
+    @Override
+    public double getInstructionsPerSecond() {
+        return instructionsPerSecond;
+    }
+
+    @Override
+    public double getFramesPerSecond() {
+        return framesPerSecond;
+    }
+
+    @Override
+    public double getTargetInstructionsPerSecond() {
+        return targetInstructionsPerSecond;
+    }
+
+    @Override
+    public double getClockRatio() {
+        var target = targetInstructionsPerSecond;
+        return target == 0 ? 0 : instructionsPerSecond / target;
+    }
+
+    @Override
+    public double getDriftMillis() {
+        return driftNanos / 1e6;
+    }
+
+    @Override
+    public double getMaxDriftMillis() {
+        return maxDriftNanos / 1e6;
+    }
+
+    @Override
+    public long getOverruns() {
+        return overruns;
+    }
+
+    @Override
+    public long getDraws() {
+        return draws;
+    }
+
+    @Override
+    public long getCollisions() {
+        return collisions;
+    }
+
+    @Override
+    public double getDrawsPerFrame() {
+        return drawsPerFrame;
+    }
+
+    @Override
+    public double getAgentNanosPerCycle() {
+        return agentNanosPerCycle;
+    }
+
+    @Override
+    public long getHalts() {
+        return halts.sum();
+    }
+
+    @Override
+    public long getFaults() {
+        return faults.sum();
+    }
+
+    @Override
+    public String getLastHaltCause() {
+        return lastHaltCause;
+    }
+
+    @Override
+    public long getPresentedFrames() {
+        return presented.sum();
+    }
+
+    @Override
+    public long getCoalescedFrames() {
+        return coalesced.sum();
+    }
+
+    @Override
+    public void resetMaxDrift() {
+        maxDriftNanos = 0;
+    }
+}
@@ -0,0 +1,49 @@
+package org.example.core.metrics;
+
+public interface MachineMetricsMBean {
+
+    String getName();
+
+    long getInstructions();
+
+    long getFrames();
+
+    // Rates over the last full second of frames
+    double getInstructionsPerSecond();
+
+    double getFramesPerSecond();
+
+    double getTargetInstructionsPerSecond();
+
+    // Achieved over target instructions per second, 1.0 when on time
+    double getClockRatio();
+
+    // How late the clock started the last frame against its fixed-rate schedule
+    double getDriftMillis();
+
+    double getMaxDriftMillis();
+
+    // Frames whose work took longer than the frame period
+    long getOverruns();
+
+    long getDraws();
+
+    long getCollisions();
+
+    double getDrawsPerFrame();
+
+    double getAgentNanosPerCycle();
+
+    long getHalts();
+
+    long getFaults();
+
+    String getLastHaltCause();
+
+    // Frames the display put on screen, and frames merged into a later one
+    long getPresentedFrames();
+
+    long getCoalescedFrames();
+
+    void resetMaxDrift();
+}
@@ -0,0 +1,142 @@
+package org.example.core.movie;
+
+import java.io.*;
+import java.util.zip.CRC32;
+
+// A recorded session: the ROM checksum, RNG seed and timing it was played
+// with, and every key event with the cycle it took effect at.
+//
+// File layout, big-endian: magic, version, ROM CRC-32, seed, instructions
+// per frame, event count, then per event the cycle delta to the previous
+// event as an unsigned varint and one byte holding the key with bit 7 set
+// for a press, and finally the cycle the recording stopped at.
+public final class Movie {
+
+    public static final int MAGIC = 0x43384D56; // "C8MV"
+    public static final short VERSION = 1;
+
+    private static final int DOWN = 0x80;
+
+    private final int romChecksum;
+    private final long seed;
+    private final int instructionsPerFrame;
+    private final long[] cycles;
+    private final byte[] events;
+    private final long endCycle;
+
+    Movie(int romChecksum, long seed, int instructionsPerFrame, long[] cycles, byte[] events, long endCycle) {
+        this.romChecksum = romChecksum;
+        this.seed = seed;
+        this.instructionsPerFrame = instructionsPerFrame;
+        this.cycles = cycles;
+        this.events = events;
+        this.endCycle = endCycle;
+    }
+
+    public static int checksum(byte[] rom) {
+        var crc = new CRC32();
+        crc.update(rom);
+        return (int) crc.getValue();
+    }
+
+    static byte event(int key, boolean down) {
+        return (byte) (key | (down ? DOWN : 0));
+    }
+
+    public int getRomChecksum() {
+        return romChecksum;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getInstructionsPerFrame() {
+        return instructionsPerFrame;
+    }
+
+    public int size() {
+        return events.length;
+    }
+
+    public long getCycle(int i) {
+        return cycles[i];
+    }
+
+    public int getKey(int i) {
+        return events[i] & 0xF;
+    }
+
+    public boolean isDown(int i) {
+        return (events[i] & DOWN) != 0;
+    }
+
+    public long getEndCycle() {
+        return endCycle;
+    }
+
+    public void write(OutputStream out) throws IOException {
+        var data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeShort(VERSION);
+        data.writeInt(romChecksum);
+        data.writeLong(seed);
+        data.writeInt(instructionsPerFrame);
+        data.writeInt(events.length);
+        long previous = 0;
+        for(int i=0; i<events.length; i++) {
+            writeVarLong(data, cycles[i] - previous);
+            data.writeByte(events[i]);
+            previous = cycles[i];
+        }
+        data.writeLong(endCycle);
+        data.flush();
+    }
+
+    public static Movie read(InputStream in) throws IOException {
+        var data = new DataInputStream(new BufferedInputStream(in));
+        if(data.readInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a movie file");
+        }
+        var version = data.readShort();
+        if(version != VERSION) {
+            throw new IllegalArgumentException("Unsupported movie version " + version);
+        }
+        var romChecksum = data.readInt();
+        var seed = data.readLong();
+        var instructionsPerFrame = data.readInt();
+        var count = data.readInt();
+        if(count < 0) {
+            throw new IllegalArgumentException("Invalid event count " + count);
+        }
+        var cycles = new long[count];
+        var events = new byte[count];
+        long previous = 0;
+        for(int i=0; i<count; i++) {
+            previous += readVarLong(data);
+            cycles[i] = previous;
+            events[i] = data.readByte();
+        }
+        return new Movie(romChecksum, seed, instructionsPerFrame, cycles, events, data.readLong());
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for(int shift = 0; shift < 64; shift += 7) {
+            var b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed cycle delta");
+    }
+}
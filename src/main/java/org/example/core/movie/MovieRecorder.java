@@ -0,0 +1,54 @@
+package org.example.core.movie;
+
+import org.example.core.CPUv2;
+import org.example.core.Keypad;
+import org.example.core.SeedableRandom;
+
+import java.util.Arrays;
+
+// Records the key events a Keypad applies, from power-on, on the emulation thread
+public class MovieRecorder implements Keypad.Listener {
+
+    private final int romChecksum;
+    private final long seed;
+    private final int instructionsPerFrame;
+
+    private long[] cycles = new long[256];
+    private byte[] events = new byte[256];
+    private int size = 0;
+
+    private MovieRecorder(int romChecksum, long seed, int instructionsPerFrame) {
+        this.romChecksum = romChecksum;
+        this.seed = seed;
+        this.instructionsPerFrame = instructionsPerFrame;
+    }
+
+    // Seeds the CPU's RNG and starts listening; the CPU must not have run yet
+    public static MovieRecorder start(CPUv2 cpu, Keypad keypad, byte[] rom) {
+        if(cpu.getCycles() != 0) {
+            throw new IllegalStateException("Recording must start at power-on");
+        }
+        var seed = System.nanoTime();
+        cpu.setRandom(new SeedableRandom(seed));
+        var recorder = new MovieRecorder(Movie.checksum(rom), seed, cpu.getInstructionsPerFrame());
+        keypad.setListener(recorder);
+        return recorder;
+    }
+
+    @Override
+    public void onKey(long cycle, int key, boolean down) {
+        if(size == events.length) {
+            cycles = Arrays.copyOf(cycles, size * 2);
+            events = Arrays.copyOf(events, size * 2);
+        }
+        cycles[size] = cycle;
+        events[size] = Movie.event(key, down);
+        size++;
+    }
+
+    // Call once the CPU has stopped
+    public Movie finish(CPUv2 cpu) {
+        return new Movie(romChecksum, seed, instructionsPerFrame,
+                Arrays.copyOf(cycles, size), Arrays.copyOf(events, size), cpu.getCycles());
+    }
+}
@@ -0,0 +1,41 @@
+package org.example.core.movie;
+
+import org.example.core.*;
+
+// Plays a movie back without a clock, as fast as the CPU runs
+public class MovieReplayer {
+
+    private final Movie movie;
+    private final Keypad keypad = new Keypad();
+    private final CPUv2 cpu;
+    private final HeadlessRunner runner;
+
+    public MovieReplayer(byte[] rom, Movie movie, Display display) {
+        if(Movie.checksum(rom) != movie.getRomChecksum()) {
+            throw new IllegalArgumentException("Movie was recorded with a different ROM");
+        }
+        this.movie = movie;
+        this.cpu = CPUBuilder.build(rom, display, keypad);
+        cpu.setRandom(new SeedableRandom(movie.getSeed()));
+        cpu.setInstructionsPerFrame(movie.getInstructionsPerFrame());
+        this.runner = new HeadlessRunner(cpu);
+    }
+
+    public CPUv2 getCpu() {
+        return cpu;
+    }
+
+    // Returns the number of instructions executed
+    public long run() {
+        long executed = 0;
+        for(int i=0; i<movie.size() && !cpu.isHalted(); i++) {
+            executed += runTo(movie.getCycle(i));
+            keypad.set(movie.getKey(i), movie.isDown(i));
+        }
+        return executed + runTo(movie.getEndCycle());
+    }
+
+    private long runTo(long cycle) {
+        return runner.runCycles(Math.max(0, cycle - cpu.getCycles()));
+    }
+}
@@ -4,23 +4,50 @@ import org.example.core.decompiler.CPUDecompiler;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.function.IntToDoubleFunction;
 import java.util.function.Supplier;
 
 import static java.awt.BorderLayout.CENTER;
 
 public class DebugViewComponent extends JPanel {
 
+    private static final int GUTTER_WIDTH = 20;
+    private static final Color BREAKPOINT = new Color(0xF0, 0x90, 0x90);
+
     private final JList<String> view;
     private int index = -1;
+    private IntPredicate breakpoint = line -> false;
+    private IntConsumer toggle = line -> {};
+    // Executions per line and the busiest line's count, for the heat map gutter
+    private int[] heat = new int[0];
+    private int hottest = 0;
 
     public DebugViewComponent(short[] rom) {
         setLayout(new BorderLayout());
         view = new JList<>();
         view.setFixedCellWidth(200);
-        view.setCellRenderer(new ListCellRenderer(()->this.index));
+        view.setCellRenderer(new ListCellRenderer(()->this.index, line -> breakpoint.test(line), this::heatOf));
         // view.setSelectionModel(new NoSelectionModel());
+        view.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                // A click in the gutter or a double click anywhere toggles the line
+                var line = view.locationToIndex(e.getPoint());
+                if(line < 0 || !view.getCellBounds(line, line).contains(e.getPoint())) {
+                    return;
+                }
+                if(e.getX() < GUTTER_WIDTH || e.getClickCount() == 2) {
+                    toggle.accept(line);
+                    view.repaint();
+                }
+            }
+        });
 
         setRom(rom);
         add(new JScrollPane(view), CENTER);
@@ -71,6 +98,34 @@ public class DebugViewComponent extends JPanel {
                 .toArray(String[]::new);
     }
 
+    public void setBreakpoints(IntPredicate breakpoint, IntConsumer toggle) {
+        this.breakpoint = breakpoint;
+        this.toggle = toggle;
+        view.repaint();
+    }
+
+    public void setHeat(int[] executions) {
+        this.heat = executions;
+        this.hottest = 0;
+        for(var count : executions) {
+            hottest = Math.max(hottest, count);
+        }
+        view.repaint();
+    }
+
+    // 0 for lines that never ran up to 1 for the hottest, on a log scale
+    private double heatOf(int line) {
+        if(line >= heat.length || heat[line] == 0) {
+            return 0;
+        }
+        return Math.log1p(heat[line]) / Math.log1p(hottest);
+    }
+
+    // The line picked by the user, or -1
+    public int getCursorLine() {
+        return view.getSelectedIndex();
+    }
+
     public void setSelectedOpcode(int index) {
         this.index = index;
         view.repaint();
@@ -84,13 +139,35 @@ public class DebugViewComponent extends JPanel {
     private static class ListCellRenderer extends DefaultListCellRenderer {
 
         private final Supplier<Integer> index;
-        public ListCellRenderer(Supplier<Integer> index) {
+        private final IntPredicate breakpoint;
+        private final IntToDoubleFunction heat;
+        private double cellHeat = 0;
+        public ListCellRenderer(Supplier<Integer> index, IntPredicate breakpoint, IntToDoubleFunction heat) {
             this.index = index;
+            this.breakpoint = breakpoint;
+            this.heat = heat;
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            super.paintComponent(g);
+            if(cellHeat > 0) {
+                // Blue for cold lines through to red for the hottest
+                g.setColor(Color.getHSBColor((float) (0.66 * (1 - cellHeat)), 1f, 1f));
+                g.fillRect(GUTTER_WIDTH - 6, 1, 4, getHeight() - 2);
+            }
         }
 
         @Override
         public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
             super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+            cellHeat = heat.applyAsDouble(index);
+            if(breakpoint.test(index)) {
+                setText("\u25CF" + value.toString().substring(1));
+                if(!isSelected) {
+                    setBackground(BREAKPOINT);
+                }
+            }
             if(index == this.index.get()) {
                 setBackground(Color.YELLOW);
             }
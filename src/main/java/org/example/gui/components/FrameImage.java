@@ -0,0 +1,51 @@
+package org.example.gui.components;
+
+import org.example.core.Display;
+import org.example.core.FrameBuffer;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+
+// Native 64x32 copy of a FrameBuffer. One bit per pixel, so a packed
+// framebuffer row is exactly one scanline.
+public class FrameImage {
+
+    private final BufferedImage image;
+    private final byte[] pixels;
+    // Rows as they were last copied into the image
+    private final long[] shown = new long[Display.HEIGHT];
+
+    public FrameImage() {
+        var colors = new byte[] {0, (byte) 0xFF};
+        var model = new IndexColorModel(1, 2, colors, colors, colors);
+        image = new BufferedImage(Display.WIDTH, Display.HEIGHT, BufferedImage.TYPE_BYTE_BINARY, model);
+        pixels = ((DataBufferByte)image.getRaster().getDataBuffer()).getData();
+    }
+
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    // Copies the rows that changed since they were last drawn into the image
+    // and returns them as a bit mask
+    public int draw(FrameBuffer screen, boolean full) {
+        int dirty = 0;
+        for(int y=0; y<Display.HEIGHT; y++) {
+            long row = screen.getRow(y);
+            if(full || row != shown[y]) {
+                shown[y] = row;
+                drawRow(y, row);
+                dirty |= 1 << y;
+            }
+        }
+        return dirty;
+    }
+
+    private void drawRow(int y, long row) {
+        int offset = y * (Display.WIDTH / 8);
+        for(int i=0; i<Display.WIDTH / 8; i++) {
+            pixels[offset + i] = (byte) (row >>> (56 - i * 8));
+        }
+    }
+}
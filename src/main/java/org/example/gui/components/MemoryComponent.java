@@ -4,13 +4,14 @@ import javax.swing.*;
 import javax.swing.table.AbstractTableModel;
 import javax.swing.table.DefaultTableCellRenderer;
 import java.awt.*;
+import java.nio.ByteBuffer;
 
 public class MemoryComponent extends JPanel {
 
     private JTable table;
     private MemoryModel model;
 
-    private static final byte[] ZERO_MEMORY = new byte[4096];
+    private static final ByteBuffer ZERO_MEMORY = ByteBuffer.allocate(4096).asReadOnlyBuffer();
 
     public MemoryComponent() {
         add(init());
@@ -35,8 +36,8 @@ public class MemoryComponent extends JPanel {
 
     }
 
-    public void setMemory(byte[] memory) {
-        if(memory.length != 4096) {
+    public void setMemory(ByteBuffer memory) {
+        if(memory.capacity() != 4096) {
             throw new IllegalArgumentException("CPU memory must be 4096 bytes");
         }
         model.setMemory(memory);
@@ -82,16 +83,15 @@ public class MemoryComponent extends JPanel {
 
     private static class MemoryModel extends AbstractTableModel {
 
-        private byte[] memory;
+        private ByteBuffer memory;
 
-        private MemoryModel(byte[] memory) {
+        private MemoryModel(ByteBuffer memory) {
             this.memory = memory;
-            memory[1] = 0x4F;
         }
 
         @Override
         public int getRowCount() {
-            return this.memory.length / 16;
+            return this.memory.capacity() / 16;
         }
 
         @Override
@@ -104,12 +104,12 @@ public class MemoryComponent extends JPanel {
             if(x==0) {
                 return (byte) y;
             } else {
-                return this.memory[16*y + x - 1];
+                return this.memory.get(16*y + x - 1);
             }
 
         }
 
-        public void setMemory(byte[] memory) {
+        public void setMemory(ByteBuffer memory) {
             this.memory = memory;
         }
     }
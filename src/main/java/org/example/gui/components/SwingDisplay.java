@@ -2,110 +2,236 @@ package org.example.gui.components;
 
 import org.example.core.Controls;
 import org.example.core.Display;
+import org.example.core.FrameBuffer;
+import org.example.core.Keypad;
+import org.example.core.metrics.MachineMetrics;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.awt.image.BufferStrategy;
-import java.awt.image.BufferedImage;
-import java.awt.image.DataBufferInt;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 public class SwingDisplay extends Canvas implements Display, KeyListener, Controls {
 
-    private final BufferedImage image;
-    private final int[] pixels;
-    private final boolean[] tiles;
+    private final FrameImage image = new FrameImage();
+    private final FrameBuffer screen = new FrameBuffer();
 
-    private static final int SIZE = 8;
+    private static final int BUFFERS = 3;
+    // Rows blitted by each of the last BUFFERS refreshes
+    private final int[] presented = new int[BUFFERS];
+    private int presentIndex = 0;
+    private volatile boolean fullRefresh = true;
 
-    private final boolean grid = false;
+    private static final int DEFAULT_SCALE = 8;
+    private static final Color GRID_COLOR = new Color(0x555555);
+
+    private volatile boolean grid = false;
+    private volatile boolean integerScaling = false;
+    private final Rectangle viewport = new Rectangle();
 
     private final JFrame frame;
 
-    private Timer timer;
+    private final AtomicBoolean refreshPending = new AtomicBoolean(false);
+    private volatile boolean closed = false;
+    private volatile MachineMetrics metrics = null;
 
     public SwingDisplay() {this(null);}
 
-    public SwingDisplay(Component c) {
-        setSize(Display.WIDTH * SIZE, Display.HEIGHT * SIZE);
+    public SwingDisplay(Component c) {this(c, DEFAULT_SCALE);}
 
-        image = new BufferedImage(Display.WIDTH * SIZE, Display.HEIGHT * SIZE, BufferedImage.TYPE_INT_RGB);
-        pixels = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+    public SwingDisplay(Component c, int scale) {
+        if(scale < 1) {
+            throw new IllegalArgumentException("Scale must be positive");
+        }
+        var size = new Dimension(Display.WIDTH * scale, Display.HEIGHT * scale);
+        setSize(size);
+        setPreferredSize(size);
 
-        tiles = new boolean[Display.WIDTH * Display.HEIGHT];
         frame = new JFrame();
         this.addKeyListener(this);
-        timer = new Timer(50, e->this.refresh());
+        this.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                fullRefresh = true;
+            }
+        });
         SwingUtilities.invokeLater(()->{
 
             frame.add(this);
             frame.pack();
-            frame.setResizable(false);
+            frame.setResizable(true);
             frame.setLocationRelativeTo(c);
             frame.setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
             frame.setVisible(true);
-            timer.start();
         });
     }
 
-    private void draw() {
-        Arrays.fill(pixels, 0x000000);
+    public void setGrid(boolean grid) {
+        this.grid = grid;
+        fullRefresh = true;
+    }
 
-        for(int y=0; y<getHeight(); y++) {
-            for(int x=0; x<getWidth(); x++) {
-                int tx = x / SIZE;
-                int ty = y / SIZE;
-                boolean tile = tiles[tx + ty * Display.WIDTH];
+    public void setMetrics(MachineMetrics metrics) {
+        this.metrics = metrics;
+    }
 
-                if (grid) {
-                    if(x % SIZE == 0 || y % SIZE == 0) {
-                        pixels[x + y * getWidth()] = 0x555555;
-                    } else {
-                        pixels[x + y * getWidth()] = tile ? 0xFFFFFF : 0;
-                    }
-                } else {
-                    pixels[x + y * getWidth()] = tile ? 0xFFFFFF : 0;
-                }
-            }
+    public void setIntegerScaling(boolean integerScaling) {
+        this.integerScaling = integerScaling;
+        fullRefresh = true;
+    }
+
+    // Largest area with the screen's aspect ratio that fits the canvas,
+    // optionally snapped to a whole multiple of the native resolution
+    private void updateViewport() {
+        double scale = Math.min((double) getWidth() / Display.WIDTH, (double) getHeight() / Display.HEIGHT);
+        if(integerScaling) {
+            scale = Math.max(1, Math.floor(scale));
         }
+        int width = (int) Math.round(Display.WIDTH * scale);
+        int height = (int) Math.round(Display.HEIGHT * scale);
+        viewport.setBounds((getWidth() - width) / 2, (getHeight() - height) / 2, width, height);
     }
 
     public void refresh() {
         BufferStrategy bs = getBufferStrategy();
         if (bs == null){
-            createBufferStrategy(3);
+            createBufferStrategy(BUFFERS);
+            return;
+        }
+
+        boolean full = fullRefresh;
+        fullRefresh = false;
+        if(full) {
+            updateViewport();
+            Arrays.fill(presented, -1);
+        }
+        presented[presentIndex] = image.draw(screen, full);
+        presentIndex = (presentIndex + 1) % BUFFERS;
+
+        // Each back buffer was last shown BUFFERS refreshes ago, so it is
+        // missing every row that changed since then
+        int rows = 0;
+        for(var mask : presented) {
+            rows |= mask;
+        }
+        if(rows == 0) {
             return;
         }
 
         Graphics2D g = null;
         do {
             try {
-                draw();
                 g = (Graphics2D) bs.getDrawGraphics();
-                g.drawImage(image, 0, 0, null);
+                blit(g, rows);
                 bs.show();
             } finally {
                 if(g!=null) {
                     g.dispose();
                 }
             }
+            if(bs.contentsLost()) {
+                rows = -1;
+                Arrays.fill(presented, -1);
+            }
         } while (bs.contentsLost());
+        var metrics = this.metrics;
+        if(metrics != null) {
+            metrics.framePresented();
+        }
+    }
+
+    private void blit(Graphics2D g, int rows) {
+        if(rows == -1) {
+            g.setColor(Color.BLACK);
+            g.fillRect(0, 0, getWidth(), getHeight());
+        }
+        int top = Integer.numberOfTrailingZeros(rows);
+        int bottom = 32 - Integer.numberOfLeadingZeros(rows);
+        int x1 = viewport.x;
+        int x2 = viewport.x + viewport.width;
+        int y1 = viewport.y + top * viewport.height / Display.HEIGHT;
+        int y2 = viewport.y + bottom * viewport.height / Display.HEIGHT;
+
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        g.drawImage(image.getImage(), x1, y1, x2, y2, 0, top, Display.WIDTH, bottom, null);
+
+        if(grid) {
+            g.setColor(GRID_COLOR);
+            for(int tx=0; tx<Display.WIDTH; tx++) {
+                int x = x1 + tx * viewport.width / Display.WIDTH;
+                g.drawLine(x, y1, x, y2 - 1);
+            }
+            for(int ty=top; ty<bottom; ty++) {
+                int y = viewport.y + ty * viewport.height / Display.HEIGHT;
+                g.drawLine(x1, y, x2 - 1, y);
+            }
+        }
+    }
+
+    // Coalesces frames published faster than the EDT can draw them
+    @Override
+    public void frameCompleted() {
+        if(!closed && refreshPending.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(()->{
+                refreshPending.set(false);
+                if(!closed) {
+                    refresh();
+                }
+            });
+        } else if(!closed && metrics != null) {
+            metrics.frameCoalesced();
+        }
+    }
+
+    @Override
+    public void paint(Graphics g) {
+        fullRefresh = true;
+        refresh();
+    }
+
+    @Override
+    public void update(Graphics g) {
+        paint(g);
     }
 
     @Override
     public int getPixel(int x, int y) {
-        return tiles[x + y * Display.WIDTH] ? 1 : 0;
+        return screen.getPixel(x, y);
+    }
+
+    @Override
+    public long getRow(int y) {
+        return screen.getRow(y);
+    }
+
+    @Override
+    public void setRow(int y, long row) {
+        screen.setRow(y, row);
     }
 
     @Override
     public void setPixel(int x, int y, int p) {
-        tiles[x + y * Display.WIDTH] = p!=0;
+        screen.setPixel(x, y, p);
+    }
+
+    @Override
+    public void clear() {
+        screen.clear();
+    }
+
+    @Override
+    public boolean drawSprite(int x, int y, byte[] rows, int count) {
+        return screen.drawSprite(x, y, rows, count);
     }
 
     public JFrame getFrame() {
@@ -131,58 +257,77 @@ public class SwingDisplay extends Canvas implements Display, KeyListener, Contro
         put(KeyEvent.VK_V, (byte) 0xF);
     }};
 
-    private final Map<Byte, Boolean> pressed = new HashMap<>();
-
-    private byte keyPressed = -1;
+    private final Keypad keypad = new Keypad();
+    private final Map<Integer, Runnable> hotkeys = new HashMap<>();
+    private final Map<Integer, Consumer<Boolean>> heldKeys = new HashMap<>();
 
     @Override
     public void keyTyped(KeyEvent e) { }
 
     @Override
     public void keyPressed(KeyEvent e) {
-        var code = setKey(e.getKeyCode(), true);
-        if(code > -1 && keyPressed==-2) {
-            keyPressed = code;
+        var hotkey = hotkeys.get(e.getKeyCode());
+        if(hotkey != null) {
+            hotkey.run();
+            return;
+        }
+        var held = heldKeys.get(e.getKeyCode());
+        if(held != null) {
+            held.accept(true);
+            return;
         }
+        setKey(e.getKeyCode(), true);
     }
 
     @Override
     public void keyReleased(KeyEvent e) {
+        var held = heldKeys.get(e.getKeyCode());
+        if(held != null) {
+            held.accept(false);
+            return;
+        }
         setKey(e.getKeyCode(), false);
     }
 
-    private byte setKey(int keyCode, boolean isPressed) {
-        if(keyToCode.containsKey(keyCode)) {
-            var code = keyToCode.get(keyCode);
-            pressed.put(code, isPressed);
-            return code;
+    private void setKey(int keyCode, boolean isPressed) {
+        var code = keyToCode.get(keyCode);
+        if(code != null) {
+            keypad.post(code, isPressed);
         }
+    }
 
-        return -1;
+    public Keypad getKeypad() {
+        return keypad;
     }
 
     @Override
     public boolean isKeyPressed(byte v) {
-        var res = pressed.getOrDefault(v, false);
-        pressed.put(v, false);
-        return res;
+        return keypad.isKeyPressed(v);
     }
 
     @Override
     public boolean isKeyNotPressed(byte v) {
-        return !isKeyPressed(v);
+        return keypad.isKeyNotPressed(v);
     }
 
     @Override
     public byte waitForKeyPress() {
-        byte ret = -1;
-        if(keyPressed > -1) {
-            ret = keyPressed;
-            keyPressed = -1;
-        } else if(keyPressed!=-2) {
-            keyPressed = -2;
-        }
-        return ret;
+        return keypad.waitForKeyPress();
+    }
+
+    @Override
+    public void beginFrame(long cycle) {
+        keypad.beginFrame(cycle);
+    }
+
+    // Runs on the Swing thread; keys bound here are not passed to the CPU
+    public void onKey(int keyCode, Runnable action) {
+        hotkeys.put(keyCode, action);
+    }
+
+    // Called with true while the key is down, including auto-repeat, and false on release
+    public void whileKeyHeld(int keyCode, Consumer<Boolean> action) {
+        heldKeys.put(keyCode, action);
     }
 
     public void exitOnClose(Runnable cleanup) {
@@ -190,7 +335,7 @@ public class SwingDisplay extends Canvas implements Display, KeyListener, Contro
             @Override
             public void windowClosing(WindowEvent e) {
                     e.getWindow().dispose();
-                    timer.stop();
+                    closed = true;
                     cleanup.run();
             }
         });
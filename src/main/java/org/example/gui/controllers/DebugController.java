@@ -1,8 +1,13 @@
 package org.example.gui.controllers;
 
+import org.example.core.Breakpoints;
 import org.example.core.CPUAgent;
 import org.example.core.CPUAgentContext;
 import org.example.core.CPUBuilder;
+import org.example.core.HeadlessRunner;
+import org.example.core.Memory;
+import org.example.core.Profiler;
+import org.example.core.Watchpoints;
 import org.example.gui.components.SwingDisplay;
 import org.example.gui.panels.DebugPanel;
 import org.example.utils.Utils;
@@ -17,6 +22,11 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 public class DebugController {
 
+    private static final int PROFILE_TOP = 100;
+    private static final int HEAT_REFRESH_MS = 500;
+    // Instructions per runCycles call; the agent checks for a stop between any two
+    private static final int RUN_BATCH = 10_000;
+
     public final DebugPanel panel = new DebugPanel(this);
     private short[] rom = null;
 
@@ -28,7 +38,15 @@ public class DebugController {
         RUNNING, STEP
     }
 
-    private DebugMode mode = DebugMode.STEP;
+    private volatile DebugMode mode = DebugMode.STEP;
+    private final Breakpoints breakpoints = new Breakpoints(this::breakpointHit);
+    private final Watchpoints watchpoints = new Watchpoints(this::watchpointHit);
+    private final Profiler profiler = new Profiler();
+    // Only touched on the CPU thread, which copies the profiler between batches
+    private final int[] counts = new int[Memory.CAPACITY];
+    private final AtomicBoolean heatRequested = new AtomicBoolean(false);
+    // Address of the breakpoint Run to cursor added, or -1
+    private volatile int cursorBreakpoint = -1;
 
     public void loadProgram(ActionEvent ae) {
         Optional<Path> opt = panel.chooseFile();
@@ -76,21 +94,185 @@ public class DebugController {
         var display = new SwingDisplay(panel);
         var cpu = CPUBuilder.build(Utils.shortArrToBytes(rom), display, display);
         cpu.addAgents(agent);
+        cpu.setBreakpoints(breakpoints);
+        cpu.setWatchpoints(watchpoints);
+        profiler.reset();
+        cpu.setProfiler(profiler);
         update(()->panel.setJumpToLine(0));
         update(panel::greenLight);
-        cpu.run();
+        // Stepping refreshes the heat map on every pause; running needs a timer
+        var heat = new Timer(HEAT_REFRESH_MS, e -> {
+            if(mode == DebugMode.RUNNING) {
+                heatRequested.set(true);
+            }
+        });
+        heat.start();
+        // Unthrottled rather than on the 60 Hz clock: stepping parks the thread
+        // in the agent, and Continue runs until a breakpoint or watchpoint
+        var runner = new HeadlessRunner(cpu);
+        while (!cpu.isHalted()) {
+            runner.runCycles(RUN_BATCH);
+            if(heatRequested.getAndSet(false)) {
+                setHeat();
+            }
+        }
+        update(heat::stop);
+        setHeat();
+        clearCursorBreakpoint();
         display.getFrame().dispose();
     }
 
-    public synchronized void step(ActionEvent e) {
-        synchronized (stopper) {
-            stopper.notify();
+    public void step(ActionEvent e) {
+        mode = DebugMode.STEP;
+        clearCursorBreakpoint();
+        wake();
+    }
+
+    // Runs at full speed until a breakpoint is hit
+    public void resume(ActionEvent e) {
+        mode = DebugMode.RUNNING;
+        update(panel::greenLight);
+        wake();
+    }
+
+    public void runToCursor(ActionEvent e) {
+        var line = panel.getCursorLine();
+        if(line < 0) {
+            panel.showPopup("Select the line to run to first");
+            return;
+        }
+        var address = toAddress(line);
+        if(!breakpoints.contains(address)) {
+            breakpoints.set(address);
+            cursorBreakpoint = address;
         }
+        resume(e);
     }
 
     public void stop(ActionEvent e) {
         stop.set(true);
-        step(e);
+        clearCursorBreakpoint();
+        wake();
+    }
+
+    public boolean isBreakpoint(int line) {
+        return breakpoints.contains(toAddress(line));
+    }
+
+    public void toggleBreakpoint(int line) {
+        var address = toAddress(line);
+        if(address == cursorBreakpoint) {
+            cursorBreakpoint = -1;
+        }
+        breakpoints.toggle(address);
+    }
+
+    public void watchWrites(ActionEvent e) {
+        panel.askRange("Watch writes").ifPresent(range -> watch(range, true));
+    }
+
+    public void watchReads(ActionEvent e) {
+        panel.askRange("Watch reads").ifPresent(range -> watch(range, false));
+    }
+
+    public void clearWatchpoints(ActionEvent e) {
+        watchpoints.clearAll();
+        panel.setStatus(" ");
+    }
+
+    private void watch(String range, boolean write) {
+        try {
+            var dash = range.indexOf('-');
+            var from = Integer.parseInt(dash < 0 ? range : range.substring(0, dash).trim(), 16);
+            var to = dash < 0 ? from : Integer.parseInt(range.substring(dash + 1).trim(), 16);
+            if(write) {
+                watchpoints.watchWrites(from, to);
+            } else {
+                watchpoints.watchReads(from, to);
+            }
+        } catch (IllegalArgumentException ex) {
+            panel.showPopup("Not an address or range: " + range);
+        }
+    }
+
+    // The access happens mid-instruction, so the CPU stops once it completes
+    private void watchpointHit(CPUAgentContext ctx, int address, boolean write, byte value) {
+        mode = DebugMode.STEP;
+        clearCursorBreakpoint();
+        var status = String.format("%s %02X %s %03X at PC %03X", write ? "Write" : "Read", value,
+                write ? "to" : "from", address, ctx.getInstructionPC());
+        update(()->panel.setStatus(status));
+        update(panel::redLight);
+    }
+
+    public void exportProfile(ActionEvent e) {
+        panel.chooseSaveFile("Export hot spots").ifPresent(path -> {
+            try (var out = Files.newBufferedWriter(path)) {
+                profiler.writeCsv(out, PROFILE_TOP);
+            } catch (IOException ex) {
+                panel.showException(ex);
+                ex.printStackTrace();
+            }
+        });
+    }
+
+    public void resetProfile(ActionEvent e) {
+        profiler.reset();
+        panel.setHeat(new int[0]);
+    }
+
+    private synchronized void wake() {
+        synchronized (stopper) {
+            stopper.notify();
+        }
+    }
+
+    private void breakpointHit(CPUAgentContext ctx) {
+        mode = DebugMode.STEP;
+        clearCursorBreakpoint();
+        update(panel::redLight);
+        pause(ctx, ctx.getInstructionPC());
+    }
+
+    // Run to cursor only lasts until the CPU next stops, wherever that is
+    private void clearCursorBreakpoint() {
+        var cursor = cursorBreakpoint;
+        if(cursor >= 0) {
+            cursorBreakpoint = -1;
+            breakpoints.clear(cursor);
+        }
+    }
+
+    // Shows the state with the given instruction next and parks the CPU thread until woken
+    private void pause(CPUAgentContext ctx, short pc) {
+        var memory = ctx.getMemory();
+        update(()->panel.setMemory(memory));
+        setRegisters(ctx);
+        var lineNumber = (pc - 0x200) / 2;
+        update(()->panel.setJumpToLine(lineNumber));
+        setHeat();
+
+        synchronized (stopper) {
+            try {
+                stopper.wait();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // Runs on the CPU thread between instructions, so the copy is consistent; Swing gets its own array
+    private void setHeat() {
+        profiler.copyCounts(counts);
+        var lines = new int[(Memory.CAPACITY - 0x200) / 2];
+        for(int line=0; line<lines.length; line++) {
+            lines[line] = counts[toAddress(line)];
+        }
+        update(()->panel.setHeat(lines));
+    }
+
+    private static int toAddress(int line) {
+        return 0x200 + line * 2;
     }
 
     private void update(Runnable r) {
@@ -102,18 +284,8 @@ public class DebugController {
         @Override
         public void postCycle(CPUAgentContext ctx) {
             if(mode == DebugMode.STEP) {
-                update(()->panel.setMemory(ctx.getMemorySnapshot()));
-                setRegisters(ctx);
-                var lineNumber = (ctx.getPCRegisterValue() - 0x200) / 2;
-                update(()->panel.setJumpToLine(lineNumber));
-
-                synchronized (stopper) {
-                    try {
-                        stopper.wait();
-                    } catch (InterruptedException e) {
-                        e.printStackTrace();
-                    }
-                }
+                // The CPU is parked until the next step, so the live view is stable
+                pause(ctx, ctx.getPCRegisterValue());
             }
 
         }
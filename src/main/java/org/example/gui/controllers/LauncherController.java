@@ -1,6 +1,7 @@
 package org.example.gui.controllers;
 
 import org.example.core.CPUBuilder;
+import org.example.core.metrics.MachineMetrics;
 import org.example.gui.components.SwingDisplay;
 import org.example.gui.panels.LauncherPanel;
 
@@ -35,7 +36,7 @@ public class LauncherController {
             byte[] bytes = new byte[0];
             try {
                 bytes = Files.readAllBytes(path);
-                run(bytes);
+                run(path.getFileName().toString(), bytes);
             } catch (IOException e) {
                 panel.showException(e);
                 e.printStackTrace();
@@ -44,12 +45,16 @@ public class LauncherController {
         });
     }
 
-    private void run(byte[] rom) {
+    private void run(String name, byte[] rom) {
 
         thread = new Thread(()->{
             var display = new SwingDisplay(panel);
             var cpu = CPUBuilder.build(rom, display, display);
+            var metrics = MachineMetrics.register(name);
+            cpu.setMetrics(metrics);
+            display.setMetrics(metrics);
             display.exitOnClose(cpu::halt);
+            display.exitOnClose(metrics::close);
             cpu.run();
         });
 
@@ -9,6 +9,7 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionListener;
 import java.io.File;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Optional;
@@ -19,6 +20,7 @@ public class DebugPanel extends JFrame {
     private DebugViewComponent debugView;
     private DisplayRegistersComponent registers;
     private JLabel lblLed;
+    private JLabel lblStatus;
     private final DebugController controller;
 
     public DebugPanel(DebugController controller) {
@@ -42,6 +44,7 @@ public class DebugPanel extends JFrame {
 
         gb.gridy = 1;
         add(debugView = new DebugViewComponent(new short[200]), gb);
+        debugView.setBreakpoints(controller::isBreakpoint, controller::toggleBreakpoint);
 
         gb.gridx = 1;
         add(registers = new DisplayRegistersComponent(), gb);
@@ -62,9 +65,13 @@ public class DebugPanel extends JFrame {
         panel.add(createButton("Start", controller::start));
         panel.add(createButton("Stop", controller::stop));
         panel.add(createButton("Step", controller::step));
+        panel.add(createButton("Continue", controller::resume));
+        panel.add(createButton("Run to cursor", controller::runToCursor));
         lblLed = new JLabel("RUNNING");
         lblLed.setForeground(Color.RED);
         panel.add(lblLed);
+        lblStatus = new JLabel(" ");
+        panel.add(lblStatus);
         return panel;
     }
 
@@ -74,7 +81,7 @@ public class DebugPanel extends JFrame {
         return button;
     }
 
-    public void setMemory(byte[] bytes) {
+    public void setMemory(ByteBuffer bytes) {
         this.memoryComponent.setMemory(bytes);
     }
 
@@ -97,6 +104,14 @@ public class DebugPanel extends JFrame {
         this.debugView.setRom(lines);
     }
 
+    public void setHeat(int[] executions) {
+        this.debugView.setHeat(executions);
+    }
+
+    public int getCursorLine() {
+        return this.debugView.getCursorLine();
+    }
+
     public void setJumpToLine(int i) {
         this.debugView.setSelectedOpcode(i);
     }
@@ -109,6 +124,25 @@ public class DebugPanel extends JFrame {
         menuItem.addActionListener(controller::loadProgram);
         menu.add(menuItem);
         bar.add(menu);
+
+        var debug = new JMenu("Debug");
+        var watchWrites = new JMenuItem("Watch writes...");
+        watchWrites.addActionListener(controller::watchWrites);
+        debug.add(watchWrites);
+        var watchReads = new JMenuItem("Watch reads...");
+        watchReads.addActionListener(controller::watchReads);
+        debug.add(watchReads);
+        var clearWatches = new JMenuItem("Clear watchpoints");
+        clearWatches.addActionListener(controller::clearWatchpoints);
+        debug.add(clearWatches);
+        debug.addSeparator();
+        var exportProfile = new JMenuItem("Export hot spots...");
+        exportProfile.addActionListener(controller::exportProfile);
+        debug.add(exportProfile);
+        var resetProfile = new JMenuItem("Reset profile");
+        resetProfile.addActionListener(controller::resetProfile);
+        debug.add(resetProfile);
+        bar.add(debug);
         setJMenuBar(bar);
     }
 
@@ -125,6 +159,27 @@ public class DebugPanel extends JFrame {
         return Optional.empty();
     }
 
+    // Hex address or inclusive range such as 300-30F, or empty when cancelled
+    public Optional<String> askRange(String title) {
+        var input = JOptionPane.showInputDialog(this, "Address or range (hex), e.g. 300 or 300-30F", title,
+                JOptionPane.PLAIN_MESSAGE);
+        return Optional.ofNullable(input).map(String::trim).filter(s -> !s.isEmpty());
+    }
+
+    public void setStatus(String status) {
+        lblStatus.setText(status);
+    }
+
+    public Optional<Path> chooseSaveFile(String title) {
+        JFileChooser fileDialog = new JFileChooser();
+        fileDialog.setDialogTitle(title);
+
+        if (fileDialog.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
+            return Optional.of(Paths.get(fileDialog.getSelectedFile().toURI()));
+        }
+        return Optional.empty();
+    }
+
     public void showException(Exception e) {
         showPopup(e.getLocalizedMessage());
     }
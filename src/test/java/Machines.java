@@ -0,0 +1,22 @@
+import org.example.core.CPUBuilder;
+import org.example.core.CPUv2;
+import org.example.core.ExecutionEngine;
+import org.example.core.headless.HeadlessControls;
+import org.example.core.headless.HeadlessDisplay;
+import org.example.utils.Utils;
+
+// CPUs for tests: headless display, no keys pressed, no clock started
+final class Machines {
+
+    private Machines() {}
+
+    static CPUv2 headless(short[] program) {
+        return CPUBuilder.build(Utils.shortArrToBytes(program), new HeadlessDisplay(), new HeadlessControls());
+    }
+
+    static CPUv2 headless(short[] program, ExecutionEngine engine) {
+        var cpu = headless(program);
+        cpu.setEngine(engine);
+        return cpu;
+    }
+}
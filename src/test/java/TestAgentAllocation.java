@@ -0,0 +1,80 @@
+import org.example.core.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Isolated;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Alone, so other classes do not change what C2 compiles while the steady state is measured
+@Isolated
+public class TestAgentAllocation {
+
+    private static final long WARMUP_CYCLES = 2_000_000;
+    private static final long MEASURED_CYCLES = 1_000_000;
+    // Slack for the allocation counter itself, far below one byte per cycle
+    private static final long MAX_ALLOCATED_BYTES = 1024;
+
+    private static final short[] PROGRAM = {
+            0x6000,         // 200: V0 = 0
+            (short) 0xA000, // 202: I = 0
+            0x2210,         // 204: call 210
+            0x7001,         // 206: V0 += 1
+            (short) 0xC1FF, // 208: V1 = rand() & FF
+            (short) 0xF015, // 20A: DT = V0
+            (short) 0xF207, // 20C: V2 = DT
+            0x1204,         // 20E: goto 204
+            (short) 0xD015, // 210: draw
+            (short) 0x8014, // 212: V0 += V1
+            0x00EE,         // 214: return
+    };
+
+    @Test
+    public void testInterpreterAgentsDoNotAllocate() {
+        assertSteadyStateAllocationFree(ExecutionEngine.INTERPRETER);
+    }
+
+    @Test
+    public void testBlockCacheAgentsDoNotAllocate() {
+        assertSteadyStateAllocationFree(ExecutionEngine.BLOCK_CACHE);
+    }
+
+    private void assertSteadyStateAllocationFree(ExecutionEngine engine) {
+        var cpu = Machines.headless(PROGRAM, engine);
+        var agent = new ReadingAgent();
+        cpu.addAgents(agent, new ReadingAgent());
+        var runner = new HeadlessRunner(cpu);
+
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        var thread = Thread.currentThread().getId();
+
+        runner.runCycles(WARMUP_CYCLES);
+        long before = threads.getThreadAllocatedBytes(thread);
+        runner.runCycles(MEASURED_CYCLES);
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        assertFalse(cpu.isHalted());
+        assertEquals(WARMUP_CYCLES + MEASURED_CYCLES, agent.cycles);
+        assertTrue(allocated < MAX_ALLOCATED_BYTES,
+                allocated + " bytes allocated over " + MEASURED_CYCLES + " cycles");
+    }
+
+    private static class ReadingAgent implements CPUAgent {
+
+        private long cycles = 0;
+        private long checksum = 0;
+
+        @Override
+        public void postCycle(CPUAgentContext ctx) {
+            cycles++;
+            checksum += ctx.getCurrentOpcode() + ctx.getInstructionPC() + ctx.getCycle()
+                    + ctx.getRegisterValue(0) + ctx.getIRegisterValue() + ctx.getPCRegisterValue()
+                    + ctx.getMemory().get(ctx.getInstructionPC()) + ctx.getDisplayRow(0);
+        }
+
+        @Override
+        public boolean isHalt() {
+            return false;
+        }
+    }
+}
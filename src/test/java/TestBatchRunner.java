@@ -0,0 +1,79 @@
+import org.example.core.ExecutionEngine;
+import org.example.core.batch.BatchRunner;
+import org.example.core.batch.InputScript;
+import org.example.utils.Utils;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestBatchRunner {
+
+    private static final short[] COUNTER = {
+            0x7001,         // 200: V0 += 1
+            (short) 0xA000, // 202: I = 0
+            (short) 0xD015, // 204: draw
+            0x1200,         // 206: goto 200
+    };
+
+    private static final short[] KEY_COUNTER = {
+            0x6105,         // 200: V1 = 5
+            (short) 0xE1A1, // 202: skip if key V1 not pressed
+            0x7001,         // 204: V0 += 1
+            0x1202,         // 206: goto 202
+    };
+
+    private static final short[] FAULT = {
+            0x7001,         // 200: V0 += 1
+            0x0123,         // 202: unsupported
+    };
+
+    @Test
+    public void testParallelRunMatchesSequentialRun() throws IOException, InterruptedException {
+        var dir = Files.createTempDirectory("roms");
+        var roms = new ArrayList<Path>();
+        for(int i=0; i<16; i++) {
+            roms.add(write(dir, "rom" + i + ".ch8", i % 2 == 0 ? COUNTER : KEY_COUNTER));
+        }
+        var runner = new BatchRunner(120, InputScript.parse("10+5,50-5"), ExecutionEngine.BLOCK_CACHE, 1);
+
+        var parallel = runner.run(roms, 4);
+        assertEquals(roms.size(), parallel.size());
+        for(int i=0; i<roms.size(); i++) {
+            var sequential = runner.run(roms.get(i));
+            assertEquals(roms.get(i), parallel.get(i).getRom());
+            assertEquals(sequential.toString(), parallel.get(i).toString());
+            assertNull(parallel.get(i).getHaltCause());
+        }
+        assertEquals(BatchRunner.collect(List.of(dir)), roms.stream().sorted().collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testInputScriptDrivesKeys() throws IOException {
+        var rom = write(Files.createTempDirectory("roms"), "keys.ch8", KEY_COUNTER);
+        var idle = new BatchRunner(60, InputScript.NONE, ExecutionEngine.INTERPRETER, 0).run(rom);
+        var pressed = new BatchRunner(60, InputScript.parse("10+5,20-5"), ExecutionEngine.INTERPRETER, 0).run(rom);
+        assertEquals(0, idle.getRegisters()[0]);
+        assertTrue(pressed.getRegisters()[0] != 0);
+    }
+
+    @Test
+    public void testFaultIsReported() throws IOException {
+        var rom = write(Files.createTempDirectory("roms"), "fault.ch8", FAULT);
+        var result = new BatchRunner(60, InputScript.NONE, ExecutionEngine.BLOCK_CACHE, 0).run(rom);
+        assertNotNull(result.getHaltCause());
+        assertEquals(1, result.getRegisters()[0]);
+        // The failing instruction does not retire
+        assertEquals(1, result.getInstructions());
+    }
+
+    private static Path write(Path dir, String name, short[] program) throws IOException {
+        return Files.write(dir.resolve(name), Utils.shortArrToBytes(program));
+    }
+}
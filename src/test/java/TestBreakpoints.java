@@ -0,0 +1,61 @@
+import org.example.core.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestBreakpoints {
+
+    private static final short[] PROGRAM = {
+            0x6000,         // 200: V0 = 0
+            0x7001,         // 202: V0 += 1
+            0x7101,         // 204: V1 += 1
+            0x1202,         // 206: goto 202
+    };
+
+    @Test
+    public void testBreakpointFiresBeforeInstruction() {
+        for(var engine : ExecutionEngine.values()) {
+            var seen = new ArrayList<Integer>();
+            var breakpoints = new Breakpoints(ctx -> {
+                assertEquals(0x204, ctx.getInstructionPC());
+                assertEquals(0x204, ctx.getPCRegisterValue());
+                assertEquals(0x7101, ctx.getCurrentOpcode());
+                seen.add((int) ctx.getRegisterValue(0) - ctx.getRegisterValue(1));
+            });
+            breakpoints.set(0x204);
+
+            var cpu = Machines.headless(PROGRAM, engine);
+            cpu.setBreakpoints(breakpoints);
+            assertEquals(300, cpu.runCycles(300));
+            assertEquals(100, seen.size(), engine.name());
+            // V0 was already incremented, V1 not yet
+            assertTrue(seen.stream().allMatch(d -> d == 1), engine.name());
+        }
+    }
+
+    @Test
+    public void testHaltFromListenerSkipsInstruction() {
+        var cpu = Machines.headless(PROGRAM, ExecutionEngine.BLOCK_CACHE);
+        var breakpoints = new Breakpoints(ctx -> cpu.halt());
+        breakpoints.set(0x206);
+        cpu.setBreakpoints(breakpoints);
+        cpu.runCycles(1000);
+        assertTrue(cpu.isHalted());
+        assertEquals(0x206, cpu.getRegisters().getPC());
+        assertEquals(3, cpu.getCycles());
+    }
+
+    @Test
+    public void testToggle() {
+        var breakpoints = new Breakpoints(ctx -> {});
+        assertTrue(breakpoints.isEmpty());
+        assertTrue(breakpoints.toggle(0xFFF));
+        assertTrue(breakpoints.contains(0xFFF));
+        assertFalse(breakpoints.contains(0xFFE));
+        assertFalse(breakpoints.toggle(0xFFF));
+        assertTrue(breakpoints.isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> breakpoints.set(Memory.CAPACITY));
+    }
+}
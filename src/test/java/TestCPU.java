@@ -1,6 +1,8 @@
 import org.example.core.*;
 import org.example.core.CPUBuilder;
 import org.example.core.CPUv2;
+import org.example.core.headless.HeadlessDisplay;
+import org.example.utils.Utils;
 import org.junit.jupiter.api.Test;
 
 import java.util.Random;
@@ -11,6 +13,8 @@ import static org.junit.jupiter.api.Assertions.*;
 
 public class TestCPU {
 
+    private static final long MAX_CYCLES = 1000;
+
     private final AtomicInteger randomNumber = new AtomicInteger();
 
     @Test
@@ -178,7 +182,7 @@ public class TestCPU {
         testCPU(program, ctx -> {
             if (ctx.getPCRegisterValue() == 0x200 + 6) {
                 assertEquals(Byte.toUnsignedInt(ctx.getRegisterValue(5)), 0xFF);
-                assertEquals(Byte.toUnsignedInt(ctx.getRegisterValue(4)), 0x02);
+                assertEquals(Byte.toUnsignedInt(ctx.getRegisterValue(4)), 0x01);
                 assertEquals(ctx.getRegisterValue(0xF), 1);
                 return true;
             }
@@ -215,7 +219,7 @@ public class TestCPU {
 
         testCPU(program, ctx -> {
             if (ctx.getPCRegisterValue() == 0x200 + 6) {
-                assertEquals(Byte.toUnsignedInt(ctx.getRegisterValue(5)), 254);
+                assertEquals(Byte.toUnsignedInt(ctx.getRegisterValue(5)), 255);
                 assertEquals(Byte.toUnsignedInt(ctx.getRegisterValue(4)), 0x04);
                 assertEquals(ctx.getRegisterValue(0xF), 0);
                 return true;
@@ -436,9 +440,28 @@ public class TestCPU {
             }
         });
 
-        cpu.addAgents( new TestAgent(testFunc));
         cpu.setRandom(new FakeRandom());
-        cpu.run();
+        assertTrue(cpu.runUntil(testFunc::apply, MAX_CYCLES), "Test condition was never reached");
+    }
+
+    @Test
+    public void testHeadlessRunnerAppliesPostedKeys() {
+        var program = new short[] {
+                (short) 0xF10A, // 200: V1 = wait for key
+                0x6201,         // 202: V2 = 1
+                0x1204,         // 204: goto 204
+        };
+        var keypad = new Keypad();
+        var cpu = CPUBuilder.build(Utils.shortArrToBytes(program), new HeadlessDisplay(), keypad);
+        var runner = new HeadlessRunner(cpu);
+        runner.runFrames(5);
+        assertEquals(0, cpu.getRegisters().getRegister(2));
+
+        // Applied at the start of the next frame, as in the clock-driven loop
+        keypad.post(7, true);
+        runner.runFrames(5);
+        assertEquals(7, cpu.getRegisters().getRegister(1));
+        assertEquals(1, cpu.getRegisters().getRegister(2));
     }
 
     private class FakeRandom extends Random {
@@ -449,27 +472,6 @@ public class TestCPU {
         }
     }
 
-    private static class TestAgent implements CPUAgent {
-
-        private boolean halt = false;
-
-        private final Function<CPUAgentContext, Boolean> testFunc;
-
-        public TestAgent(Function<CPUAgentContext, Boolean> testFunc) {
-            this.testFunc = testFunc;
-        }
-
-        @Override
-        public void postCycle(CPUAgentContext ctx) {
-            halt = testFunc.apply(ctx);
-        }
-
-        @Override
-        public boolean isHalt() {
-            return halt;
-        }
-    }
-
     private static void addOperation(byte[] rom, int pos, short op) {
         rom[pos * 2] = (byte) (op >> 8);
         rom[pos * 2 + 1] = (byte) (op & 0x00FF);
@@ -0,0 +1,109 @@
+import org.example.core.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestCallProfiler {
+
+    private static final short[] NESTED = {
+            0x2210,         // 200: call 210
+            0x2210,         // 202: call 210
+            0x1204,         // 204: goto 204
+            0x0000, 0x0000, 0x0000, 0x0000, 0x0000,
+            0x6001,         // 210: V0 = 1
+            0x2220,         // 212: call 220
+            0x00EE,         // 214: return
+            0x0000, 0x0000, 0x0000, 0x0000, 0x0000,
+            0x6102,         // 220: V1 = 2
+            0x7101,         // 222: V1 += 1
+            0x00EE,         // 224: return
+    };
+
+    private static final short[] RECURSIVE = {
+            0x6003,         // 200: V0 = 3
+            0x2210,         // 202: call 210
+            0x1204,         // 204: goto 204
+            0x0000, 0x0000, 0x0000, 0x0000, 0x0000,
+            0x70FF,         // 210: V0 -= 1
+            0x3000,         // 212: skip if V0 == 0
+            0x2210,         // 214: call 210
+            0x00EE,         // 216: return
+    };
+
+    @Test
+    public void testInclusiveAndExclusiveCounts() throws IOException {
+        for(var engine : ExecutionEngine.values()) {
+            var profiler = run(NESTED, engine, 20);
+            assertEquals(2, profiler.getCalls(0x210), engine.name());
+            assertEquals(6, profiler.getExclusive(0x210), engine.name());
+            assertEquals(12, profiler.getInclusive(0x210), engine.name());
+            assertEquals(6, profiler.getExclusive(0x220), engine.name());
+            assertEquals(6, profiler.getInclusive(0x220), engine.name());
+
+            var out = new StringWriter();
+            profiler.writeCollapsed(out);
+            assertEquals("main 8\nmain;sub_210 6\nmain;sub_210;sub_220 6\n", out.toString(), engine.name());
+        }
+    }
+
+    @Test
+    public void testRecursionCountedOnce() throws IOException {
+        var profiler = run(RECURSIVE, ExecutionEngine.INTERPRETER, 15);
+        assertEquals(3, profiler.getCalls(0x210));
+        assertEquals(11, profiler.getExclusive(0x210));
+        assertEquals(11, profiler.getInclusive(0x210));
+
+        var out = new StringWriter();
+        profiler.writeCsv(out);
+        var lines = out.toString().split("\n");
+        assertEquals("main,0,15,4,100.00", lines[1]);
+        assertEquals("sub_210,3,11,11,73.33", lines[2]);
+    }
+
+    @Test
+    public void testUnmatchedReturnStaysAtRoot() throws IOException {
+        var cpu = Machines.headless(NESTED, ExecutionEngine.INTERPRETER);
+        // Attach inside the first call to 210, so its return was never seen entering
+        new HeadlessRunner(cpu).runCycles(2);
+        var profiler = new CallProfiler();
+        cpu.setCallProfiler(profiler);
+        new HeadlessRunner(cpu).runCycles(18);
+        assertEquals(1, profiler.getCalls(0x210));
+        var out = new StringWriter();
+        profiler.writeCollapsed(out);
+        assertTrue(out.toString().startsWith("main "), out.toString());
+    }
+
+    @Test
+    public void testRestoreContinuesFromRoot() throws IOException {
+        var cpu = Machines.headless(NESTED, ExecutionEngine.INTERPRETER);
+        var profiler = new CallProfiler();
+        cpu.setCallProfiler(profiler);
+        var runner = new HeadlessRunner(cpu);
+        // Saved inside 220, called from 210
+        runner.runCycles(3);
+        var state = ByteBuffer.allocate(SaveState.SIZE);
+        cpu.save(state);
+        runner.runCycles(17);
+        cpu.restore(state.flip());
+        runner.runCycles(17);
+
+        // Every instruction counted once, none taken back by the earlier cycle count
+        var out = new StringWriter();
+        profiler.writeCsv(out);
+        assertTrue(out.toString().split("\n")[1].startsWith("main,0,37,"), out.toString());
+        assertEquals(3, profiler.getCalls(0x210));
+    }
+
+    private static CallProfiler run(short[] program, ExecutionEngine engine, long cycles) {
+        var cpu = Machines.headless(program, engine);
+        var profiler = new CallProfiler();
+        cpu.setCallProfiler(profiler);
+        new HeadlessRunner(cpu).runCycles(cycles);
+        return profiler;
+    }
+}
@@ -0,0 +1,76 @@
+import org.example.core.ExecutionEngine;
+import org.example.core.batch.BatchRunner;
+import org.example.core.conformance.ConformanceResult;
+import org.example.core.conformance.ConformanceRunner;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.ResourceLock;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.parallel.ResourceAccessMode.READ;
+
+public class TestConformance {
+
+    private static final Path ROMS = Paths.get("src", "test", "resources", "conformance");
+    private static final boolean UPDATE = Boolean.getBoolean("conformance.update");
+    // The interpreter run rewrites the goldens in update mode while the others read them
+    private static final String GOLDENS = "conformance.goldens";
+
+    @Test
+    @ResourceLock(GOLDENS)
+    public void testInterpreterMatchesGoldens() throws IOException, InterruptedException {
+        check(ExecutionEngine.INTERPRETER, UPDATE);
+    }
+
+    @Test
+    @ResourceLock(value = GOLDENS, mode = READ)
+    public void testBlockCacheMatchesGoldens() throws IOException, InterruptedException {
+        check(ExecutionEngine.BLOCK_CACHE, false);
+    }
+
+    @Test
+    @ResourceLock(value = GOLDENS, mode = READ)
+    public void testJitMatchesGoldens() throws IOException, InterruptedException {
+        check(ExecutionEngine.JIT, false);
+    }
+
+    @Test
+    @ResourceLock(value = GOLDENS, mode = READ)
+    public void testMismatchWritesDiff() throws IOException {
+        var dir = Files.createTempDirectory("conformance");
+        var rom = Files.copy(ROMS.resolve("draw.ch8"), dir.resolve("draw.ch8"));
+        var golden = Files.readString(ConformanceRunner.goldenPath(ROMS.resolve("draw.ch8")));
+        // Drop the hash so the edited row is not rejected as a corrupt file
+        golden = golden.replaceFirst("hash=.*\\R", "").replaceFirst("row=F0", "row=00");
+        Files.writeString(ConformanceRunner.goldenPath(rom), golden);
+
+        var runner = new ConformanceRunner(ExecutionEngine.INTERPRETER, dir.resolve("reports"), false, 60);
+        var result = runner.check(rom);
+        assertEquals(ConformanceResult.Status.FAIL, result.getStatus(), result.toString());
+        assertTrue(result.getDifferences().get(0).startsWith("row 0 "), result.toString());
+        assertTrue(Files.size(runner.diffPath(rom)) > 0);
+    }
+
+    @Test
+    @ResourceLock(value = GOLDENS, mode = READ)
+    public void testMissingGoldenFails() throws IOException {
+        var dir = Files.createTempDirectory("conformance");
+        var rom = Files.copy(ROMS.resolve("calls.ch8"), dir.resolve("calls.ch8"));
+        var result = new ConformanceRunner(ExecutionEngine.INTERPRETER, dir, false, 60).check(rom);
+        assertEquals(ConformanceResult.Status.MISSING, result.getStatus());
+    }
+
+    private static void check(ExecutionEngine engine, boolean update) throws IOException, InterruptedException {
+        var roms = BatchRunner.collect(List.of(ROMS));
+        assertFalse(roms.isEmpty());
+        var runner = new ConformanceRunner(engine, Paths.get("build", "conformance", engine.name().toLowerCase()), update, 60);
+        for(var result : runner.run(roms, 2)) {
+            assertFalse(result.isFailure(), result.toString());
+        }
+    }
+}
@@ -0,0 +1,164 @@
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.example.core.*;
+import org.example.core.headless.HeadlessDisplay;
+import org.example.utils.Utils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Isolated;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Recordings see every thread's events, so only this thread's are counted.
+// Slow frames come from the clock's thread, so no other class may run meanwhile.
+@Isolated
+public class TestFlightRecorder {
+
+    private static final short[] PROGRAM = {
+            0x00E0,         // 200: clear
+            0x7001,         // 202: V0 += 1
+            (short) 0xA000, // 204: I = 0
+            (short) 0xD015, // 206: draw
+            0x3005,         // 208: skip if V0 == 5
+            0x1200,         // 20A: goto 200
+            0x0123,         // 20C: unsupported
+    };
+
+    private static final short[] LOOP = {
+            0x7001,         // 200: V0 += 1
+            (short) 0xA000, // 202: I = 0
+            (short) 0xD015, // 204: draw
+            0x1200,         // 206: goto 200
+    };
+
+    @Test
+    public void testEventsAreRecorded() throws IOException {
+        var file = Files.createTempFile("chip8", ".jfr");
+        CPUv2 cpu;
+        try (var recording = new Recording()) {
+            recording.enable("org.example.chip8.Frame");
+            recording.enable("org.example.chip8.DrawBatch");
+            recording.enable("org.example.chip8.ClearScreen");
+            recording.enable("org.example.chip8.Halt");
+            recording.start();
+
+            cpu = CPUBuilder.build(Utils.shortArrToBytes(PROGRAM), new HeadlessDisplay(), new Keypad());
+            cpu.setLogFaults(false);
+            cpu.setInstructionsPerFrame(6);
+            var runner = new HeadlessRunner(cpu);
+            runner.runFrames(10);
+            // Stopping a halted CPU again is not a second halt
+            cpu.halt();
+
+            recording.stop();
+            recording.dump(file);
+        }
+        assertTrue(cpu.isHalted());
+
+        var events = read(file);
+
+        var frames = named(events, "org.example.chip8.Frame");
+        assertEquals(4, frames.size());
+        for(var frame : frames) {
+            assertEquals(6, frame.getLong("instructions"));
+        }
+        assertEquals(4, named(events, "org.example.chip8.DrawBatch").size());
+
+        var clears = named(events, "org.example.chip8.ClearScreen");
+        assertEquals(5, clears.size());
+        for(var clear : clears) {
+            assertEquals(0x200, clear.getInt("pc"));
+        }
+
+        var halts = named(events, "org.example.chip8.Halt");
+        assertEquals(1, halts.size());
+        assertTrue(halts.get(0).getBoolean("faulted"));
+        assertEquals(29, halts.get(0).getLong("instructions"));
+        assertNotNull(halts.get(0).getStackTrace());
+    }
+
+    @Test
+    public void testFramesEndAtTheirBoundaries() throws IOException {
+        var file = Files.createTempFile("chip8", ".jfr");
+        try (var recording = new Recording()) {
+            recording.enable("org.example.chip8.Frame");
+            recording.start();
+
+            var cpu = CPUBuilder.build(Utils.shortArrToBytes(LOOP), new HeadlessDisplay(), new Keypad());
+            cpu.setInstructionsPerFrame(6);
+            // One call crossing ten frame boundaries
+            new HeadlessRunner(cpu).runCycles(60);
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        var frames = named(read(file), "org.example.chip8.Frame");
+        assertEquals(10, frames.size());
+        for(int i=0; i<frames.size(); i++) {
+            assertEquals(i + 1, frames.get(i).getLong("frame"));
+            assertEquals(6, frames.get(i).getLong("instructions"));
+        }
+    }
+
+    @Test
+    public void testSlowFrameNamesSlowestStep() throws IOException, InterruptedException {
+        var file = Files.createTempFile("chip8", ".jfr");
+        try (var recording = new Recording()) {
+            recording.enable("org.example.chip8.SlowFrame").withThreshold(Duration.ZERO);
+            recording.start();
+
+            var cpu = CPUBuilder.build(Utils.shortArrToBytes(LOOP), new HeadlessDisplay(), new Keypad());
+            cpu.run();
+            for(int wait=0; wait<200 && cpu.getFrames() < 3; wait++) {
+                Thread.sleep(10);
+            }
+            cpu.halt();
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        // Frames run on the clock's thread
+        var slow = RecordingFile.readAllEvents(file).stream()
+                .filter(e -> e.getEventType().getName().equals("org.example.chip8.SlowFrame"))
+                .collect(Collectors.toList());
+        Files.delete(file);
+        assertFalse(slow.isEmpty());
+        for(var frame : slow) {
+            var pc = frame.getInt("slowestPc");
+            assertTrue(pc >= 0x200 && pc <= 0x206, Integer.toHexString(pc));
+            assertTrue(frame.getLong("slowestDuration") > 0);
+            assertNull(frame.getStackTrace());
+        }
+    }
+
+    @Test
+    public void testRunsWithoutRecording() {
+        var cpu = CPUBuilder.build(Utils.shortArrToBytes(PROGRAM), new HeadlessDisplay(), new Keypad());
+        cpu.setLogFaults(false);
+        new HeadlessRunner(cpu).runFrames(10);
+        assertNotNull(cpu.getHaltCause());
+    }
+
+    // Events from this thread only
+    private static List<RecordedEvent> read(Path file) throws IOException {
+        var thread = Thread.currentThread().getId();
+        var events = RecordingFile.readAllEvents(file).stream()
+                .filter(e -> e.getThread() != null && e.getThread().getJavaThreadId() == thread)
+                .collect(Collectors.toList());
+        Files.delete(file);
+        return events;
+    }
+
+    private static List<RecordedEvent> named(List<RecordedEvent> events, String name) {
+        return events.stream().filter(e -> e.getEventType().getName().equals(name)).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,50 @@
+import org.example.core.Memory;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestMemory {
+
+    @Test
+    public void testFreshMemoryHasNoChangedPages() {
+        var memory = new Memory();
+        assertEquals(0, memory.changedSince(0));
+    }
+
+    @Test
+    public void testWritesMarkTheirPages() {
+        var memory = new Memory();
+        memory.write(0x000, (byte) 1);
+        memory.write(0x0BF, (byte) 2);
+        memory.insertData(0x23E, new byte[] {3, 4, 5});
+        assertEquals(1L | 1L << 2 | 1L << 8 | 1L << 9, memory.changedSince(0));
+    }
+
+    @Test
+    public void testChangedSinceOnlyReportsNewerEpochs() {
+        var memory = new Memory();
+        memory.write(0x040, (byte) 1);
+        var epoch = memory.nextEpoch();
+        memory.write(0xFFF, (byte) 2);
+        assertEquals(1L << 63, memory.changedSince(epoch));
+        assertEquals(1L << 1 | 1L << 63, memory.changedSince(0));
+        assertEquals(0, memory.changedSince(memory.nextEpoch()));
+    }
+
+    @Test
+    public void testDeltaRoundTrip() {
+        var memory = new Memory();
+        memory.write(0x080, (byte) 0x11);
+        memory.write(0xFC1, (byte) 0x22);
+        var mask = memory.changedSince(0);
+        var delta = memory.delta(mask);
+        assertEquals(2 * Memory.PAGE_SIZE, delta.length);
+        assertEquals(0x11, delta[0]);
+        assertEquals(0x22, delta[Memory.PAGE_SIZE + 1]);
+
+        var copy = new Memory();
+        assertEquals(delta.length, copy.applyPages(mask, delta, 0));
+        assertArrayEquals(memory.snapshot(), copy.snapshot());
+        assertEquals(mask, copy.changedSince(0));
+    }
+}
@@ -0,0 +1,77 @@
+import org.example.core.*;
+import org.example.core.metrics.MachineMetrics;
+import org.junit.jupiter.api.Test;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestMetrics {
+
+    private static final short[] PROGRAM = {
+            (short) 0xA000, // 200: I = 0
+            (short) 0xD005, // 202: draw
+            (short) 0xD005, // 204: draw again, collides
+            0x1200,         // 206: goto 200
+    };
+
+    @Test
+    public void testCountersAreExposedOverJmx() throws Exception {
+        var cpu = Machines.headless(PROGRAM);
+        var server = ManagementFactory.getPlatformMBeanServer();
+        var name = new ObjectName(MachineMetrics.DOMAIN + ":type=Machine,name=\"test-counters\"");
+        try (var metrics = MachineMetrics.register("test-counters")) {
+            cpu.setMetrics(metrics);
+            new HeadlessRunner(cpu).runFrames(20);
+
+            assertEquals(20L, server.getAttribute(name, "Frames"));
+            assertEquals(cpu.getCycles(), server.getAttribute(name, "Instructions"));
+            assertEquals(cpu.getCycles() / 2, server.getAttribute(name, "Draws"));
+            assertEquals(cpu.getCycles() / 4, server.getAttribute(name, "Collisions"));
+            assertEquals(0L, server.getAttribute(name, "Halts"));
+        }
+        assertFalse(server.isRegistered(name));
+    }
+
+    @Test
+    public void testSameNameGetsSuffix() {
+        try (var first = MachineMetrics.register("test-twice"); var second = MachineMetrics.register("test-twice")) {
+            assertEquals("test-twice", first.getName());
+            assertEquals("test-twice#2", second.getName());
+        }
+    }
+
+    @Test
+    public void testFaultIsCounted() {
+        var cpu = Machines.headless(new short[] {0x0123});
+        var metrics = new MachineMetrics("test-fault");
+        cpu.setMetrics(metrics);
+        cpu.setLogFaults(false);
+        cpu.runCycles(10);
+        assertEquals(1, metrics.getFaults());
+        assertEquals(1, metrics.getHalts());
+        assertTrue(metrics.getLastHaltCause().contains("Unsupported instruction"), metrics.getLastHaltCause());
+    }
+
+    @Test
+    public void testRatesCoverOneSecondWindows() {
+        var now = new AtomicLong(0);
+        var metrics = new MachineMetrics("test-rates", now::get);
+        metrics.frameCompleted(0, 0, 0, 0, 0, 5, 60);
+        now.set(999_000_000L);
+        metrics.frameCompleted(150, 30, 60, 1, 300, 5, 60);
+        // Still inside the first window
+        assertEquals(0.0, metrics.getInstructionsPerSecond());
+
+        now.set(2_000_000_000L);
+        metrics.frameCompleted(300, 60, 120, 3, 600, 5, 60);
+        assertEquals(300.0, metrics.getTargetInstructionsPerSecond());
+        assertEquals(150.0, metrics.getInstructionsPerSecond());
+        assertEquals(30.0, metrics.getFramesPerSecond());
+        assertEquals(2.0, metrics.getDrawsPerFrame());
+        assertEquals(2.0, metrics.getAgentNanosPerCycle());
+        assertEquals(0.5, metrics.getClockRatio());
+    }
+}
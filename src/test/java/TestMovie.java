@@ -0,0 +1,86 @@
+import org.example.core.*;
+import org.example.core.headless.HeadlessDisplay;
+import org.example.core.movie.Movie;
+import org.example.core.movie.MovieRecorder;
+import org.example.core.movie.MovieReplayer;
+import org.example.utils.Utils;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestMovie {
+
+    private static final short[] PROGRAM = {
+            0x6300,         // 200: V3 = 0
+            (short) 0xF10A, // 202: V1 = wait for key
+            (short) 0x8314, // 204: V3 += V1
+            (short) 0xC4FF, // 206: V4 = rand() & FF
+            (short) 0x8344, // 208: V3 += V4
+            0x6005,         // 20A: V0 = 5
+            (short) 0xE09E, // 20C: skip if key V0 pressed
+            0x7301,         // 20E: V3 += 1
+            (short) 0xD345, // 210: draw
+            0x1202,         // 212: goto 202
+    };
+
+    // Frame, key, pressed
+    private static final int[][] EVENTS = {
+            {3, 7, 1}, {10, 7, 0}, {12, 5, 1}, {20, 2, 1}, {30, 5, 0}, {31, 2, 0},
+            {40, 0xA, 1}, {40, 0xB, 1}, {41, 0xA, 0}, {55, 0xB, 0},
+    };
+
+    @Test
+    public void testReplayReproducesRecordedSession() throws IOException {
+        var rom = Utils.shortArrToBytes(PROGRAM);
+        var keypad = new Keypad();
+        var cpu = CPUBuilder.build(rom, new HeadlessDisplay(), keypad);
+        var recorder = MovieRecorder.start(cpu, keypad, rom);
+
+        // Same order of work as the clock-driven frame loop
+        var runner = new HeadlessRunner(cpu);
+        for(int frame=0; frame<100; frame++) {
+            for(var event : EVENTS) {
+                if(event[0] == frame) {
+                    keypad.post(event[1], event[2] != 0);
+                }
+            }
+            keypad.beginFrame(cpu.getCycles());
+            runner.runCycles(cpu.getInstructionsPerFrame());
+        }
+        assertFalse(cpu.isHalted());
+        assertNotEquals(0, cpu.getRegisters().getRegister(3));
+
+        var out = new ByteArrayOutputStream();
+        recorder.finish(cpu).write(out);
+        var movie = Movie.read(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(EVENTS.length, movie.size());
+        assertEquals(cpu.getCycles(), movie.getEndCycle());
+        assertTrue(out.size() < 64 + 4 * EVENTS.length, out.size() + " bytes");
+
+        var replayer = new MovieReplayer(rom, movie, new HeadlessDisplay());
+        assertEquals(cpu.getCycles(), replayer.run());
+        assertArrayEquals(save(cpu), save(replayer.getCpu()));
+    }
+
+    @Test
+    public void testReplayRejectsOtherRom() throws IOException {
+        var rom = Utils.shortArrToBytes(PROGRAM);
+        var keypad = new Keypad();
+        var cpu = CPUBuilder.build(rom, new HeadlessDisplay(), keypad);
+        var movie = MovieRecorder.start(cpu, keypad, rom).finish(cpu);
+
+        var other = Utils.shortArrToBytes(new short[] {0x1200});
+        assertThrows(IllegalArgumentException.class, () -> new MovieReplayer(other, movie, new HeadlessDisplay()));
+    }
+
+    private static byte[] save(CPUv2 cpu) {
+        var buffer = ByteBuffer.allocate(SaveState.SIZE);
+        cpu.save(buffer);
+        return buffer.array();
+    }
+}
@@ -0,0 +1,69 @@
+import org.example.core.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestProfiler {
+
+    private static final short[] PROGRAM = {
+            0x6000,         // 200: V0 = 0
+            0x7001,         // 202: V0 += 1
+            0x3004,         // 204: skip if V0 == 4
+            0x1202,         // 206: goto 202
+            0x6100,         // 208: V1 = 0
+            0x7101,         // 20A: V1 += 1
+            0x1200,         // 20C: goto 200
+    };
+
+    @Test
+    public void testCountsPerAddressAndInstruction() {
+        var profiler = run(ExecutionEngine.INTERPRETER, 15);
+        // One pass: 200, then 202-206 three times, then 202, 204, 208, 20A, 20C
+        assertEquals(1, profiler.getCount(0x200));
+        assertEquals(4, profiler.getCount(0x202));
+        assertEquals(3, profiler.getCount(0x206));
+        assertEquals(1, profiler.getCount(0x20C));
+        assertEquals(0, profiler.getCount(0x20E));
+        assertEquals(5, profiler.getCount(Instructions.ADD));
+        assertEquals(4, profiler.getCount(Instructions.JMP));
+        assertEquals(15, profiler.getTotal());
+    }
+
+    @Test
+    public void testEnginesAgree() {
+        var expected = run(ExecutionEngine.INTERPRETER, 140_000);
+        for(var engine : new ExecutionEngine[] {ExecutionEngine.BLOCK_CACHE, ExecutionEngine.JIT}) {
+            var actual = run(engine, 140_000);
+            for(int address=0x200; address<0x20E; address+=2) {
+                assertEquals(expected.getCount(address), actual.getCount(address), engine + " " + address);
+            }
+            for(var instruction : Instructions.values()) {
+                assertEquals(expected.getCount(instruction), actual.getCount(instruction), engine + " " + instruction);
+            }
+        }
+    }
+
+    @Test
+    public void testCsvReport() throws IOException {
+        var out = new StringWriter();
+        run(ExecutionEngine.INTERPRETER, 15).writeCsv(out, 2);
+        var lines = out.toString().split("\n");
+        assertEquals("address,opcode,instruction,count,percent", lines[0]);
+        assertEquals("202,7001,ADD,4,26.67", lines[1]);
+        assertEquals("204,3004,SE,4,26.67", lines[2]);
+        assertEquals("", lines[3]);
+        assertEquals("instruction,count,percent", lines[4]);
+        assertEquals("ADD,5,33.33", lines[5]);
+    }
+
+    private static Profiler run(ExecutionEngine engine, long cycles) {
+        var cpu = Machines.headless(PROGRAM, engine);
+        var profiler = new Profiler();
+        cpu.setProfiler(profiler);
+        assertEquals(cycles, new HeadlessRunner(cpu).runCycles(cycles));
+        return profiler;
+    }
+}
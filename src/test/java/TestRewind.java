@@ -0,0 +1,91 @@
+import org.example.core.*;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestRewind {
+
+    private static final short[] PROGRAM = {
+            0x6000,         // 200: V0 = 0
+            (short) 0xA300, // 202: I = 300
+            0x2212,         // 204: call 212
+            0x7001,         // 206: V0 += 1
+            (short) 0xC1FF, // 208: V1 = rand() & FF
+            (short) 0xF115, // 20A: DT = V1
+            (short) 0xF133, // 20C: BCD V1 at I
+            (short) 0xF21E, // 20E: I += V2
+            0x1204,         // 210: goto 204
+            (short) 0xD015, // 212: draw
+            0x00EE,         // 214: return
+    };
+
+    @Test
+    public void testStepBackRestoresEveryFrame() {
+        var cpu = newCpu();
+        var rewind = new RewindBuffer();
+        var states = record(cpu, rewind, 200);
+
+        for(int frame = states.size() - 2; frame >= 0; frame--) {
+            assertTrue(rewind.stepBack(cpu));
+            assertArrayEquals(states.get(frame), save(cpu), "frame " + frame);
+        }
+        assertFalse(rewind.stepBack(cpu));
+    }
+
+    @Test
+    public void testRecordingResumesAfterRewind() {
+        var cpu = newCpu();
+        var rewind = new RewindBuffer();
+        var states = record(cpu, rewind, 50);
+        for(int i=0; i<20; i++) {
+            rewind.stepBack(cpu);
+        }
+        assertArrayEquals(states.get(29), save(cpu));
+
+        var replayed = record(cpu, rewind, 20);
+        assertArrayEquals(states.get(49), replayed.get(19));
+        assertEquals(50, rewind.size());
+    }
+
+    @Test
+    public void testSmallRingEvictsOldFrames() {
+        var cpu = newCpu();
+        var rewind = new RewindBuffer(4 * SaveState.SIZE, 1000, 4);
+        var states = record(cpu, rewind, 300);
+        var kept = rewind.size();
+        assertTrue(kept > 1 && kept < 300, kept + " frames kept");
+
+        for(int i=1; i<kept; i++) {
+            assertTrue(rewind.stepBack(cpu));
+            assertArrayEquals(states.get(states.size() - 1 - i), save(cpu));
+        }
+        assertFalse(rewind.stepBack(cpu));
+    }
+
+    private static List<byte[]> record(CPUv2 cpu, RewindBuffer rewind, int frames) {
+        var runner = new HeadlessRunner(cpu);
+        var states = new ArrayList<byte[]>();
+        for(int i=0; i<frames; i++) {
+            runner.runFrames(1);
+            rewind.record(cpu);
+            states.add(save(cpu));
+        }
+        return states;
+    }
+
+    private static byte[] save(CPUv2 cpu) {
+        var buffer = ByteBuffer.allocate(SaveState.SIZE);
+        cpu.save(buffer);
+        return buffer.array();
+    }
+
+    private static CPUv2 newCpu() {
+        var cpu = Machines.headless(PROGRAM);
+        cpu.setRandom(new SeedableRandom(7));
+        return cpu;
+    }
+}
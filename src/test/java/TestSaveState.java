@@ -0,0 +1,115 @@
+import org.example.core.*;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestSaveState {
+
+    private static final short[] PROGRAM = {
+            0x6000,         // 200: V0 = 0
+            (short) 0xA300, // 202: I = 300
+            0x2212,         // 204: call 212
+            0x7001,         // 206: V0 += 1
+            (short) 0xC1FF, // 208: V1 = rand() & FF
+            (short) 0xF115, // 20A: DT = V1
+            (short) 0xF133, // 20C: BCD V1 at I
+            (short) 0xF207, // 20E: V2 = DT
+            0x1204,         // 210: goto 204
+            (short) 0xD015, // 212: draw
+            0x00EE,         // 214: return
+    };
+
+    @Test
+    public void testSeedableRandomMatchesRandom() {
+        var expected = new Random(1234);
+        var actual = new SeedableRandom(1234);
+        for(int i=0; i<100; i++) {
+            assertEquals(expected.nextInt(0x100), actual.nextInt(0x100));
+        }
+    }
+
+    @Test
+    public void testRestoredCpuContinuesIdentically() throws IOException {
+        var original = newCpu();
+        new HeadlessRunner(original).runCycles(10_007);
+
+        var out = new ByteArrayOutputStream();
+        original.save(out);
+        assertEquals(SaveState.SIZE, out.size());
+
+        var copy = newCpu();
+        copy.restore(new ByteArrayInputStream(out.toByteArray()));
+        assertSameState(original, copy);
+
+        new HeadlessRunner(original).runCycles(5_000);
+        new HeadlessRunner(copy).runCycles(5_000);
+        assertSameState(original, copy);
+    }
+
+    @Test
+    public void testRejectsForeignData() {
+        var cpu = newCpu();
+        assertThrows(IllegalArgumentException.class, () -> cpu.restore(ByteBuffer.allocate(SaveState.SIZE)));
+        assertThrows(IllegalArgumentException.class, () -> cpu.restore(ByteBuffer.allocate(16)));
+
+        var buffer = ByteBuffer.allocate(SaveState.SIZE);
+        cpu.save(buffer);
+        buffer.putShort(4, (short) (SaveState.VERSION + 1));
+        assertThrows(IllegalArgumentException.class, () -> cpu.restore(buffer.flip()));
+    }
+
+    @Test
+    public void testRejectsInvalidInstructionsPerFrame() {
+        var cpu = newCpu();
+        new HeadlessRunner(cpu).runCycles(100);
+        var buffer = ByteBuffer.allocate(SaveState.SIZE);
+        cpu.save(buffer);
+        assertEquals(cpu.getInstructionsPerFrame(), buffer.getInt(SaveState.INSTRUCTIONS_PER_FRAME_OFFSET));
+        buffer.putInt(SaveState.INSTRUCTIONS_PER_FRAME_OFFSET, 0);
+
+        var fresh = newCpu();
+        assertThrows(IllegalArgumentException.class, () -> fresh.restore(buffer.flip()));
+        assertEquals(0, fresh.getCycles());
+        assertEquals(CPUBuilder.CYCLES_PER_FRAME, fresh.getInstructionsPerFrame());
+    }
+
+    @Test
+    public void testSaveIsFast() {
+        var cpu = newCpu();
+        new HeadlessRunner(cpu).runCycles(1_000);
+        var buffer = ByteBuffer.allocate(SaveState.SIZE);
+        for(int i=0; i<10_000; i++) {
+            cpu.save(buffer.clear());
+        }
+        long start = System.nanoTime();
+        for(int i=0; i<1_000; i++) {
+            cpu.save(buffer.clear());
+        }
+        long perSave = (System.nanoTime() - start) / 1_000;
+        assertTrue(perSave < 1_000_000, perSave + " ns per save");
+    }
+
+    private static CPUv2 newCpu() {
+        var cpu = Machines.headless(PROGRAM);
+        cpu.setRandom(new SeedableRandom(42));
+        return cpu;
+    }
+
+    private static void assertSameState(CPUv2 expected, CPUv2 actual) {
+        var a = ByteBuffer.allocate(SaveState.SIZE);
+        var b = ByteBuffer.allocate(SaveState.SIZE);
+        expected.save(a);
+        actual.save(b);
+        assertArrayEquals(a.array(), b.array());
+        assertEquals(expected.getDelayTimer(), actual.getDelayTimer());
+        for(int y=0; y<Display.HEIGHT; y++) {
+            assertEquals(expected.getDisplay().getRow(y), actual.getDisplay().getRow(y));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+import org.example.core.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestWatchpoints {
+
+    private static final short[] PROGRAM = {
+            0x60EA,         // 200: V0 = 234
+            (short) 0xA300, // 202: I = 300
+            (short) 0xF033, // 204: BCD V0 at I
+            (short) 0xF265, // 206: V0-V2 = memory at I
+            0x7301,         // 208: V3 += 1
+            0x1200,         // 20A: goto 200
+    };
+
+    @Test
+    public void testWritesReportWritingPC() {
+        for(var engine : ExecutionEngine.values()) {
+            var hits = new ArrayList<String>();
+            var watchpoints = new Watchpoints((ctx, address, write, value) ->
+                    hits.add(String.format("%s %03X %03X %d", write ? "W" : "R", ctx.getInstructionPC(), address, value)));
+            watchpoints.watchWrites(0x301, 0x302);
+
+            var cpu = Machines.headless(PROGRAM, engine);
+            cpu.setWatchpoints(watchpoints);
+            cpu.runCycles(6 * 50);
+            assertEquals(100, hits.size(), engine.name());
+            assertEquals(List.of("W 204 301 3", "W 204 302 4"), hits.subList(98, 100), engine.name());
+        }
+    }
+
+    @Test
+    public void testReadsAndUnwatch() {
+        var hits = new ArrayList<Integer>();
+        var watchpoints = new Watchpoints((ctx, address, write, value) -> {
+            assertFalse(write);
+            hits.add(address);
+        });
+        var cpu = Machines.headless(PROGRAM, ExecutionEngine.INTERPRETER);
+        cpu.setWatchpoints(watchpoints);
+        cpu.runCycles(6);
+        assertTrue(hits.isEmpty());
+
+        watchpoints.watchReads(0x300, 0x300);
+        assertFalse(watchpoints.isEmpty());
+        cpu.runCycles(6);
+        assertEquals(List.of(0x300), hits);
+
+        watchpoints.unwatch(0x300, 0x300);
+        assertTrue(watchpoints.isEmpty());
+        cpu.runCycles(6);
+        assertEquals(1, hits.size());
+        assertEquals(2, cpu.getRegisters().getRegister(0));
+    }
+
+    @Test
+    public void testStepAndRunUntilSeeWatchpointChanges() {
+        var hits = new ArrayList<Integer>();
+        var watchpoints = new Watchpoints((ctx, address, write, value) -> hits.add(address));
+        var cpu = Machines.headless(PROGRAM, ExecutionEngine.INTERPRETER);
+        cpu.setWatchpoints(watchpoints);
+
+        watchpoints.watchWrites(0x300, 0x300);
+        for(int i=0; i<3; i++) {
+            cpu.step();
+        }
+        assertEquals(List.of(0x300), hits);
+
+        watchpoints.clearAll();
+        assertTrue(cpu.runUntil(ctx -> ctx.getInstructionPC() == 0x204, 100));
+        assertEquals(1, hits.size());
+
+        watchpoints.watchReads(0x302, 0x302);
+        assertTrue(cpu.runUntil(ctx -> ctx.getInstructionPC() == 0x206, 100));
+        assertEquals(List.of(0x300, 0x302), hits);
+    }
+
+    @Test
+    public void testRejectsBadRange() {
+        var watchpoints = new Watchpoints((ctx, address, write, value) -> {});
+        assertThrows(IllegalArgumentException.class, () -> watchpoints.watchWrites(0x310, 0x300));
+        assertThrows(IllegalArgumentException.class, () -> watchpoints.watchReads(0, Memory.CAPACITY));
+    }
+}